@@ -0,0 +1,52 @@
+package com.jchevertonwynne.benchmarks;
+
+import com.jchevertonwynne.pathing.BoundarySearch;
+import com.jchevertonwynne.structures.BoundarySearchResult;
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.FrontierSet;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import com.jchevertonwynne.utils.SimulationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boundary search from the start position over a world explored to a fixed walking distance
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoundarySearchBenchmark {
+    @Param({"mazeSmall", "officeLayout", "large"})
+    public String map;
+
+    @Param({"150"})
+    public int exploredDistance;
+
+    private OccupancyGrid world;
+    private FrontierSet frontier;
+    private Coord start;
+    private SimulationConfig config;
+
+    @Setup
+    public void setup() {
+        MapFixture fixture = MapFixture.load(map);
+        world = fixture.knownWithin(exploredDistance);
+        frontier = new FrontierSet(world);
+        start = fixture.getStart();
+        config = fixture.config(1, 1);
+    }
+
+    @Benchmark
+    public BoundarySearchResult calculateBoundaryTiles() {
+        return BoundarySearch.calculateBoundaryTiles(start, world, frontier, Set.of(), config);
+    }
+}
@@ -0,0 +1,29 @@
+package com.jchevertonwynne.benchmarks;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.utils.CircleOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CircleOperationsBenchmark {
+    @Param({"30", "60"})
+    public int radius;
+
+    private final Coord centre = new Coord(400, 400);
+
+    @Benchmark
+    public List<List<Coord>> generateCircleRays() {
+        return CircleOperations.generateCircleRays(centre, radius);
+    }
+}
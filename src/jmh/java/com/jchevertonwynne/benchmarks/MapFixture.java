@@ -0,0 +1,155 @@
+package com.jchevertonwynne.benchmarks;
+
+import com.jchevertonwynne.experiments.HeadlessRun;
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.SimulationConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+
+import static com.jchevertonwynne.structures.Coord.CARDINAL_DIRECTIONS;
+import static java.lang.String.format;
+
+/**
+ * Benchmark inputs built from the maps in areas/, which must be reachable from the working directory
+ */
+public class MapFixture {
+    private static final Map<String, Coord> START_POSITIONS = Map.of(
+            "mazeSmall", new Coord(238, 288),
+            "officeLayout", new Coord(400, 400),
+            "large", new Coord(788, 397)
+    );
+
+    private final String name;
+    private final Terrain terrain;
+    private final Coord start;
+
+    private MapFixture(String name, Terrain terrain, Coord start) {
+        this.name = name;
+        this.terrain = terrain;
+        this.start = start;
+    }
+
+    public static MapFixture load(String name) {
+        Coord start = START_POSITIONS.get(name);
+        if (start == null) {
+            throw new IllegalArgumentException(format("No start position known for map %s", name));
+        }
+        try {
+            return new MapFixture(name, HeadlessRun.loadWorld(mapFile(name), SimulationConfig.DEFAULT), start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String mapFile(String name) {
+        return format("areas/%s.png", name);
+    }
+
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    public Coord getStart() {
+        return start;
+    }
+
+    public int getWidth() {
+        return terrain.getWidth();
+    }
+
+    public int getHeight() {
+        return terrain.getHeight();
+    }
+
+    public SimulationConfig config(int agentCount, int threads) {
+        return SimulationConfig.DEFAULT.toBuilder()
+                .backgroundName(mapFile(name))
+                .startPosition(start)
+                .agentCount(agentCount)
+                .simulationThreads(threads)
+                .display(false)
+                .seed(1L)
+                .build();
+    }
+
+    /**
+     * @return Knowledge of every tile on the map
+     */
+    public OccupancyGrid fullyKnown() {
+        OccupancyGrid grid = new OccupancyGrid(getWidth(), getHeight());
+        for (int x = 0; x < getWidth(); x++) {
+            for (int y = 0; y < getHeight(); y++) {
+                grid.set(x, y, terrain.isPathable(x, y));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * @param steps Walking distance from the start position to reveal
+     * @return Knowledge of the tiles within steps of the start and the walls bordering them
+     */
+    public OccupancyGrid knownWithin(int steps) {
+        OccupancyGrid grid = new OccupancyGrid(getWidth(), getHeight());
+        int[] distances = distancesFromStart();
+        for (int x = 0; x < getWidth(); x++) {
+            for (int y = 0; y < getHeight(); y++) {
+                int distance = distances[y * getWidth() + x];
+                if (distance >= 0 && distance <= steps) {
+                    grid.set(x, y, true);
+                    for (Coord direction : CARDINAL_DIRECTIONS) {
+                        int nx = x + direction.getX();
+                        int ny = y + direction.getY();
+                        if (grid.inBounds(nx, ny) && !terrain.isPathable(nx, ny)) {
+                            grid.set(nx, ny, false);
+                        }
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * @return The reachable tile furthest from the start position by walking distance
+     */
+    public Coord furthestReachable() {
+        int[] distances = distancesFromStart();
+        int furthest = 0;
+        for (int i = 1; i < distances.length; i++) {
+            if (distances[i] > distances[furthest]) furthest = i;
+        }
+        return new Coord(furthest % getWidth(), furthest / getWidth());
+    }
+
+    private int[] distancesFromStart() {
+        int width = getWidth();
+        int[] distances = new int[width * getHeight()];
+        Arrays.fill(distances, -1);
+        Deque<Coord> toVisit = new ArrayDeque<>();
+        distances[start.getY() * width + start.getX()] = 0;
+        toVisit.add(start);
+        while (!toVisit.isEmpty()) {
+            Coord current = toVisit.poll();
+            int distance = distances[current.getY() * width + current.getX()];
+            for (Coord direction : CARDINAL_DIRECTIONS) {
+                Coord next = current.combine(direction);
+                int x = next.getX();
+                int y = next.getY();
+                if (!terrain.isPathable(x, y)) continue;
+                int index = y * width + x;
+                if (distances[index] >= 0) continue;
+                distances[index] = distance + 1;
+                toVisit.add(next);
+            }
+        }
+        return distances;
+    }
+}
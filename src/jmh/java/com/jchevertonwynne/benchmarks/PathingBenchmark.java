@@ -0,0 +1,70 @@
+package com.jchevertonwynne.benchmarks;
+
+import com.jchevertonwynne.pathing.PathPlanner;
+import com.jchevertonwynne.pathing.PathPlannerType;
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each path planner across a fully known map, from the start position to the furthest reachable
+ * tile. The expansions and searches counters are totals, so expansions / searches is the number
+ * of nodes each search takes off its open set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PathingBenchmark {
+    @Param({"mazeSmall", "officeLayout", "large"})
+    public String map;
+
+    @Param({"ASTAR", "JUMP_POINT"})
+    public PathPlannerType planner;
+
+    private OccupancyGrid world;
+    private Coord start;
+    private Coord destination;
+    private PathPlanner search;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long expansions;
+        public long searches;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            expansions = 0;
+            searches = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        MapFixture fixture = MapFixture.load(map);
+        world = fixture.fullyKnown();
+        start = fixture.getStart();
+        destination = fixture.furthestReachable();
+        search = planner.create();
+    }
+
+    @Benchmark
+    public LinkedList<Coord> calculatePath(Counters counters) {
+        LinkedList<Coord> path = search.findPath(start, destination, world);
+        counters.expansions += search.getExpansions();
+        counters.searches++;
+        return path;
+    }
+}
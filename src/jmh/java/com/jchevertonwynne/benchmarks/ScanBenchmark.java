@@ -0,0 +1,61 @@
+package com.jchevertonwynne.benchmarks;
+
+import com.jchevertonwynne.simulation.Scanner;
+import com.jchevertonwynne.simulation.ScannerFactory;
+import com.jchevertonwynne.simulation.SwarmAgent;
+import com.jchevertonwynne.simulation.VisibilityType;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+import com.jchevertonwynne.utils.SimulationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single scan at the start position by an agent that knows nothing yet
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScanBenchmark {
+    @Param({"mazeSmall", "officeLayout", "large"})
+    public String map;
+
+    @Param({"30", "60"})
+    public int sightRadius;
+
+    @Param({"RAY_CAST", "SHADOW_CAST"})
+    public VisibilityType visibility;
+
+    private MapFixture fixture;
+    private SimulationConfig config;
+    private SwarmAgent agent;
+    private Scanner scanner;
+
+    @Setup(Level.Trial)
+    public void loadMap() {
+        fixture = MapFixture.load(map);
+        config = fixture.config(1, 1).toBuilder().sightRadius(sightRadius).visibilityType(visibility).build();
+    }
+
+    @Setup(Level.Invocation)
+    public void freshAgent() {
+        agent = new SwarmAgent(0, fixture.getStart(), Color.YELLOW, fixture.getWidth(), fixture.getHeight(), config);
+        scanner = new ScannerFactory(fixture.getTerrain(), List.of(agent), config).instance(agent);
+    }
+
+    @Benchmark
+    public KnowledgeGrid scan() {
+        scanner.scan();
+        return agent.getWorld();
+    }
+}
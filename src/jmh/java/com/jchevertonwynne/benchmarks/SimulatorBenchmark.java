@@ -0,0 +1,69 @@
+package com.jchevertonwynne.benchmarks;
+
+import com.jchevertonwynne.simulation.Simulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Simulator.progress tick. Each iteration starts a new seeded simulation,
+ * so every iteration measures the same opening sequence of ticks. A simulation
+ * that finishes within an iteration is replaced by a new one, outside the timing,
+ * so no finished ticks are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimulatorBenchmark {
+    @Param({"mazeSmall", "officeLayout", "large"})
+    public String map;
+
+    @Param({"10"})
+    public int agentCount;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private MapFixture fixture;
+    private Simulator simulator;
+
+    @Setup(Level.Trial)
+    public void loadMap() {
+        fixture = MapFixture.load(map);
+    }
+
+    @Setup(Level.Iteration)
+    public void newSimulation() {
+        simulator = new Simulator(fixture.getTerrain(), fixture.config(agentCount, threads));
+    }
+
+    /**
+     * Ticks are milliseconds long, so the per invocation setup cost JMH warns of is negligible
+     */
+    @Setup(Level.Invocation)
+    public void restartIfComplete() {
+        if (simulator.complete()) {
+            simulator.close();
+            newSimulation();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopSimulation() {
+        simulator.close();
+    }
+
+    @Benchmark
+    public boolean progress() {
+        return simulator.progress();
+    }
+}
@@ -6,23 +6,22 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.image.BufferedImage;
 
 public class DisplayClickListener implements MouseListener {
     Logger logger = LoggerFactory.getLogger(DisplayClickListener.class);
 
-    private final BufferedImage image;
+    private final RenderLoop renderLoop;
     private final Simulator simulator;
 
 
-    public DisplayClickListener(BufferedImage image, Simulator simulator) {
-        this.image = image;
+    public DisplayClickListener(RenderLoop renderLoop, Simulator simulator) {
+        this.renderLoop = renderLoop;
         this.simulator = simulator;
     }
 
     @Override
     public void mouseClicked(MouseEvent mouseEvent) {
-        simulator.saveImage(image);
+        simulator.saveImage(renderLoop.snapshot());
     }
 
     @Override
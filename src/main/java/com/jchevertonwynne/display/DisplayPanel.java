@@ -2,14 +2,34 @@ package com.jchevertonwynne.display;
 
 import com.jchevertonwynne.simulation.Simulator;
 
-import javax.swing.ImageIcon;
-import javax.swing.JLabel;
 import javax.swing.JPanel;
+import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 
 public class DisplayPanel extends JPanel {
-    public DisplayPanel(BufferedImage image, Simulator simulator) {
-        add(new JLabel(new ImageIcon(image)));
-        addMouseListener(new DisplayClickListener(image, simulator));
+    private final RenderLoop renderLoop;
+
+    public DisplayPanel(BufferedImage background, Simulator simulator, int framesPerSecond) {
+        this(background, (Displayable) simulator, framesPerSecond);
+        addMouseListener(new DisplayClickListener(renderLoop, simulator));
+    }
+
+    /**
+     * A panel showing scene over background, drawn by its own render loop
+     */
+    public DisplayPanel(BufferedImage background, Displayable scene, int framesPerSecond) {
+        setPreferredSize(new Dimension(background.getWidth(), background.getHeight()));
+        renderLoop = new RenderLoop(background, scene, this, framesPerSecond);
+    }
+
+    public RenderLoop getRenderLoop() {
+        return renderLoop;
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        super.paintComponent(graphics);
+        graphics.drawImage(renderLoop.getFrontBuffer(), 0, 0, null);
     }
 }
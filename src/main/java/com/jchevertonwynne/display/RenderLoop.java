@@ -0,0 +1,93 @@
+package com.jchevertonwynne.display;
+
+import java.awt.Component;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a scene over a background on its own thread at a capped frame rate. Each frame is
+ * drawn into a back buffer which is then swapped with the front buffer that Swing paints, so
+ * neither the simulation nor the event dispatch thread waits on rendering.
+ */
+public class RenderLoop implements AutoCloseable {
+    private final int[] background;
+    private final Displayable scene;
+    private final Component target;
+    private final ScheduledExecutorService renderer;
+    private volatile BufferedImage front;
+    private BufferedImage back;
+
+    public RenderLoop(BufferedImage background, Displayable scene, Component target, int framesPerSecond) {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive");
+        }
+        this.front = copyOf(background);
+        this.back = copyOf(background);
+        this.background = pixels(copyOf(background));
+        this.scene = scene;
+        this.target = target;
+        this.renderer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "render-loop");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renderer.scheduleAtFixedRate(this::renderFrame, 0, 1_000_000 / framesPerSecond, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @return Most recently completed frame, which must not be drawn on
+     */
+    public BufferedImage getFrontBuffer() {
+        return front;
+    }
+
+    /**
+     * @return Copy of the most recently completed frame, taken while no frame is being swapped
+     * in, which may be kept and drawn on
+     */
+    public BufferedImage snapshot() {
+        synchronized (this) {
+            return copyOf(front);
+        }
+    }
+
+    /**
+     * Render a frame on the calling thread and swap it to the front, as the loop does on its own
+     */
+    public void renderFrame() {
+        synchronized (this) {
+            System.arraycopy(background, 0, pixels(back), 0, background.length);
+            scene.display(back);
+            BufferedImage finished = back;
+            back = front;
+            front = finished;
+        }
+        target.repaint();
+    }
+
+    /**
+     * Stop rendering, waiting for a frame in progress to finish
+     */
+    @Override
+    public void close() {
+        renderer.shutdown();
+        try {
+            renderer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BufferedImage copyOf(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        copy.getGraphics().drawImage(image, 0, 0, null);
+        return copy;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
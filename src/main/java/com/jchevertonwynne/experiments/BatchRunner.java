@@ -0,0 +1,105 @@
+package com.jchevertonwynne.experiments;
+
+import com.jchevertonwynne.structures.Terrain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless entry point for parameter sweeps. Every run of a SweepSpec is executed as a
+ * HeadlessRun inside this JVM, up to parallelRuns of them at once, so later runs benefit from
+ * code already warmed up by earlier ones. Maps are loaded once and shared between runs.
+ * One CSV row is appended per finished run.
+ * <p>
+ * Usage: BatchRunner &lt;sweep.properties&gt;
+ */
+public class BatchRunner {
+    static {
+        // per-move logging from many concurrent runs would dominate run time
+        if (System.getProperty("log4j.configuration") == null) {
+            System.setProperty("log4j.configuration", "log4j-headless.properties");
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    private static final String CSV_HEADER = "map,startX,startY,agents,sightRadius,broadcastRadius,employDrops,globalKnowledge,seed," + RunResult.CSV_HEADER;
+
+    private final SweepSpec spec;
+    private final PrintWriter output;
+    private final AtomicInteger finished = new AtomicInteger();
+    private final Map<String, Terrain> worlds = new ConcurrentHashMap<>();
+
+    private BatchRunner(SweepSpec spec, PrintWriter output) {
+        this.spec = spec;
+        this.output = output;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length != 1) {
+            System.err.println("Usage: BatchRunner <sweep.properties>");
+            System.exit(1);
+        }
+        SweepSpec spec = SweepSpec.load(new File(args[0]));
+        File outputFile = new File(spec.getOutput());
+        boolean newFile = !outputFile.exists() || outputFile.length() == 0;
+
+        try (PrintWriter output = new PrintWriter(new FileWriter(outputFile, true))) {
+            if (newFile) {
+                output.println(CSV_HEADER);
+                output.flush();
+            }
+            new BatchRunner(spec, output).runAll();
+        }
+    }
+
+    private void runAll() throws InterruptedException {
+        List<RunParameters> runs = spec.getRuns();
+        logger.info("Running {} simulations, {} at a time", runs.size(), spec.getParallelRuns());
+        long start = System.currentTimeMillis();
+
+        ExecutorService runners = Executors.newFixedThreadPool(spec.getParallelRuns());
+        runs.forEach(run -> runners.execute(() -> record(run, execute(run))));
+        runners.shutdown();
+        runners.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        double hours = (System.currentTimeMillis() - start) / 3_600_000.0;
+        System.out.printf("%d runs finished, %.1f runs per hour%n", runs.size(), runs.size() / hours);
+    }
+
+    private RunResult execute(RunParameters run) {
+        long start = System.currentTimeMillis();
+        try {
+            Terrain world = worlds.computeIfAbsent(run.getMap(), map -> {
+                try {
+                    return HeadlessRun.loadWorld(map, spec.getBaseConfig());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return HeadlessRun.run(world, run.applyTo(spec.getBaseConfig()), spec.getMaxTicks());
+        } catch (RuntimeException e) {
+            logger.error("Run {} failed", run, e);
+            return RunResult.failed(System.currentTimeMillis() - start);
+        }
+    }
+
+    private synchronized void record(RunParameters run, RunResult result) {
+        output.println(run.toCsv() + "," + result.toCsv());
+        output.flush();
+        System.out.printf("[%d/%d] %s -> %s%n", finished.incrementAndGet(), spec.getRuns().size(), run.toCsv(), result.toCsv());
+    }
+}
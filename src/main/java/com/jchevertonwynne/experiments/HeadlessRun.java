@@ -0,0 +1,68 @@
+package com.jchevertonwynne.experiments;
+
+import com.jchevertonwynne.simulation.Simulator;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.MapLoader;
+import com.jchevertonwynne.utils.SimulationConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Runs a single simulation without any display or image output
+ */
+public class HeadlessRun {
+    private static final String MAX_TICKS_FLAG = "--maxTicks=";
+
+    /**
+     * @param config Settings for how the map is read
+     */
+    public static Terrain loadWorld(String backgroundName, SimulationConfig config) throws IOException {
+        return MapLoader.fromConfig(config).load(new File(backgroundName));
+    }
+
+    /**
+     * @param world Pathable terrain, only ever read so it may be shared between runs
+     * @param maxTicks Number of ticks after which an unfinished run is abandoned
+     */
+    public static RunResult run(Terrain world, SimulationConfig config, int maxTicks) {
+        long start = System.currentTimeMillis();
+        Simulator simulator = new Simulator(world, config);
+        int ticks = 0;
+        try {
+            while (!simulator.complete() && ticks < maxTicks) {
+                simulator.progress();
+                ticks++;
+            }
+        }
+        finally {
+            simulator.close();
+        }
+
+        return new RunResult(
+                simulator.complete(),
+                ticks,
+                simulator.totalDistanceMoved(),
+                simulator.totalScans(),
+                System.currentTimeMillis() - start
+        );
+    }
+
+    /**
+     * Accepts the same flags as Main, plus --maxTicks=n
+     */
+    public static void main(String[] args) throws IOException {
+        int maxTicks = Arrays.stream(args)
+                .filter(arg -> arg.startsWith(MAX_TICKS_FLAG))
+                .mapToInt(arg -> Integer.parseInt(arg.substring(MAX_TICKS_FLAG.length())))
+                .findFirst()
+                .orElse(Integer.MAX_VALUE);
+        String[] configArgs = Arrays.stream(args)
+                .filter(arg -> !arg.startsWith(MAX_TICKS_FLAG))
+                .toArray(String[]::new);
+        SimulationConfig config = SimulationConfig.fromArgs(configArgs).toBuilder().display(false).build();
+
+        System.out.println(run(loadWorld(config.getBackgroundName(), config), config, maxTicks).toCsv());
+    }
+}
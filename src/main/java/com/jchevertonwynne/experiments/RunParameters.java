@@ -0,0 +1,42 @@
+package com.jchevertonwynne.experiments;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.utils.SimulationConfig;
+import lombok.NonNull;
+import lombok.Value;
+
+import static java.lang.String.format;
+
+@Value
+public class RunParameters {
+    @NonNull String map;
+    @NonNull Coord start;
+    int agentCount;
+    int sightRadius;
+    int broadcastRadius;
+    boolean employDrops;
+    boolean globalKnowledge;
+    long seed;
+
+    /**
+     * @return base with this run's parameters applied
+     */
+    public SimulationConfig applyTo(SimulationConfig base) {
+        return base.toBuilder()
+                .backgroundName(map)
+                .startPosition(start)
+                .agentCount(agentCount)
+                .sightRadius(sightRadius)
+                .broadcastRadius(broadcastRadius)
+                .employDrops(employDrops)
+                .globalKnowledge(globalKnowledge)
+                .seed(seed)
+                .display(false)
+                .build();
+    }
+
+    public String toCsv() {
+        return format("%s,%d,%d,%d,%d,%d,%b,%b,%d",
+                map, start.getX(), start.getY(), agentCount, sightRadius, broadcastRadius, employDrops, globalKnowledge, seed);
+    }
+}
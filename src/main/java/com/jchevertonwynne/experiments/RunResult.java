@@ -0,0 +1,24 @@
+package com.jchevertonwynne.experiments;
+
+import lombok.Value;
+
+import static java.lang.String.format;
+
+@Value
+public class RunResult {
+    public static final String CSV_HEADER = "completed,ticks,distanceMoved,scans,wallClockMs";
+
+    boolean completed;
+    int ticks;
+    int distanceMoved;
+    int scans;
+    long wallClockMs;
+
+    public static RunResult failed(long wallClockMs) {
+        return new RunResult(false, -1, -1, -1, wallClockMs);
+    }
+
+    public String toCsv() {
+        return format("%b,%d,%d,%d,%d", completed, ticks, distanceMoved, scans, wallClockMs);
+    }
+}
@@ -0,0 +1,106 @@
+package com.jchevertonwynne.experiments;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.utils.SimulationConfig;
+import lombok.Value;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Parameter sweep read from a properties file. List valued keys are comma separated
+ * and every combination of them is run:
+ * <pre>
+ * maps=areas/mazeSmall.png,areas/officeLayout.png
+ * start=400,400
+ * start.mazeSmall.png=200,300
+ * agentCounts=5,10,20
+ * sightRadii=30
+ * broadcastRadii=60
+ * employDrops=false,true
+ * globalKnowledge=false
+ * seeds=1,2,3
+ * maxTicks=200000
+ * parallelRuns=8
+ * threadsPerRun=1
+ * config=base.properties
+ * output=results/sweep.csv
+ * </pre>
+ * Only maps is required. Everything else defaults to the SimulationConfig read from the
+ * optional config file, which also supplies any settings the sweep does not vary.
+ */
+@Value
+public class SweepSpec {
+    SimulationConfig baseConfig;
+    List<RunParameters> runs;
+    int maxTicks;
+    int parallelRuns;
+    String output;
+
+    public static SweepSpec load(File file) throws IOException {
+        Properties properties = SimulationConfig.load(file);
+        SimulationConfig base = SimulationConfig.DEFAULT;
+        String configFile = properties.getProperty("config");
+        if (configFile != null) {
+            base = base.with(SimulationConfig.load(new File(file.getParentFile(), configFile)));
+        }
+        return fromProperties(properties, base);
+    }
+
+    public static SweepSpec fromProperties(Properties properties, SimulationConfig base) {
+        List<String> maps = list(properties, "maps", null, Function.identity());
+        if (maps.isEmpty()) {
+            throw new IllegalArgumentException("A sweep needs at least one entry in maps");
+        }
+        Coord baseStart = base.getStartPosition();
+        String defaultStart = format("%d,%d", baseStart.getX(), baseStart.getY());
+        List<Integer> agentCounts = list(properties, "agentCounts", base.getAgentCount(), Integer::parseInt);
+        List<Integer> sightRadii = list(properties, "sightRadii", base.getSightRadius(), Integer::parseInt);
+        List<Integer> broadcastRadii = list(properties, "broadcastRadii", base.getBroadcastRadius(), Integer::parseInt);
+        List<Boolean> employDrops = list(properties, "employDrops", base.isEmployDrops(), Boolean::parseBoolean);
+        List<Boolean> globalKnowledge = list(properties, "globalKnowledge", base.isGlobalKnowledge(), Boolean::parseBoolean);
+        List<Long> seeds = list(properties, "seeds", base.getSeed() == null ? 0L : base.getSeed(), Long::parseLong);
+
+        List<RunParameters> runs = new ArrayList<>();
+        for (String map : maps) {
+            String mapName = new File(map).getName();
+            Coord start = SimulationConfig.parseCoord(properties.getProperty("start." + mapName, properties.getProperty("start", defaultStart)));
+            for (int agentCount : agentCounts)
+                for (int sightRadius : sightRadii)
+                    for (int broadcastRadius : broadcastRadii)
+                        for (boolean drops : employDrops)
+                            for (boolean global : globalKnowledge)
+                                for (long seed : seeds)
+                                    runs.add(new RunParameters(map, start, agentCount, sightRadius, broadcastRadius, drops, global, seed));
+        }
+
+        int threadsPerRun = Integer.parseInt(properties.getProperty("threadsPerRun", "1"));
+        return new SweepSpec(
+                base.toBuilder().simulationThreads(threadsPerRun).build(),
+                runs,
+                Integer.parseInt(properties.getProperty("maxTicks", String.valueOf(Integer.MAX_VALUE))),
+                Integer.parseInt(properties.getProperty("parallelRuns", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                properties.getProperty("output", "results/sweep.csv")
+        );
+    }
+
+    private static <T> List<T> list(Properties properties, String key, T defaultValue, Function<String, T> parser) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue == null ? List.of() : List.of(defaultValue);
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(entry -> !entry.isEmpty())
+                .map(parser)
+                .collect(toList());
+    }
+}
@@ -0,0 +1,105 @@
+package com.jchevertonwynne.experiments;
+
+import com.jchevertonwynne.simulation.VisibilityStrategy;
+import com.jchevertonwynne.simulation.VisibilityType;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.SimulationConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static java.lang.String.format;
+
+/**
+ * Compares every visibility strategy against ray casting on each map in a directory.
+ * Scans are taken from randomly chosen open tiles, and for each map the tiles seen only by
+ * ray casting, only by the other strategy, and the time spent scanning are reported.
+ * <p>
+ * Usage: VisibilityComparison [areasDirectory] [sightRadius] [samples] [seed]
+ */
+public class VisibilityComparison {
+    private static class Totals {
+        long visits;
+        long seen;
+        long onlyThis;
+        long onlyRays;
+        long nanos;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : "areas");
+        int radius = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int samples = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+        File[] maps = directory.listFiles((dir, name) -> name.endsWith(".png"));
+        if (maps == null || maps.length == 0) {
+            throw new IllegalArgumentException(format("No maps found in %s", directory));
+        }
+        Arrays.sort(maps);
+
+        System.out.printf("%-24s %-12s %12s %12s %12s %12s %10s%n",
+                "map", "strategy", "visits", "seen", "onlyThis", "onlyRays", "us/scan");
+        for (File map : maps) {
+            compare(map.getName(), HeadlessRun.loadWorld(map.getPath(), SimulationConfig.DEFAULT), radius, samples, new Random(seed));
+        }
+    }
+
+    private static void compare(String name, Terrain world, int radius, int samples, Random random) {
+        int width = world.getWidth();
+        int height = world.getHeight();
+        VisibilityType[] types = VisibilityType.values();
+        Totals[] totals = new Totals[types.length];
+        Arrays.setAll(totals, i -> new Totals());
+
+        for (int sample = 0; sample < samples; sample++) {
+            int x;
+            int y;
+            do {
+                x = random.nextInt(width);
+                y = random.nextInt(height);
+            } while (!world.isPathable(x, y));
+
+            BitSet rays = null;
+            for (int i = 0; i < types.length; i++) {
+                BitSet seen = new BitSet(width * height);
+                long[] visits = new long[1];
+                VisibilityStrategy strategy = types[i].getStrategy();
+                long start = System.nanoTime();
+                strategy.scan(world, x, y, radius, (tx, ty, pathable) -> {
+                    seen.set(ty * width + tx);
+                    visits[0]++;
+                });
+                totals[i].nanos += System.nanoTime() - start;
+                totals[i].visits += visits[0];
+                totals[i].seen += seen.cardinality();
+
+                if (types[i] == VisibilityType.RAY_CAST) {
+                    rays = seen;
+                }
+                else if (rays != null) {
+                    BitSet onlyThis = (BitSet) seen.clone();
+                    onlyThis.andNot(rays);
+                    BitSet onlyRays = (BitSet) rays.clone();
+                    onlyRays.andNot(seen);
+                    totals[i].onlyThis += onlyThis.cardinality();
+                    totals[i].onlyRays += onlyRays.cardinality();
+                }
+            }
+        }
+
+        for (int i = 0; i < types.length; i++) {
+            System.out.printf("%-24s %-12s %12d %12d %12d %12d %10.1f%n",
+                    name,
+                    types[i],
+                    totals[i].visits,
+                    totals[i].seen,
+                    totals[i].onlyThis,
+                    totals[i].onlyRays,
+                    totals[i].nanos / 1000.0 / samples);
+        }
+    }
+}
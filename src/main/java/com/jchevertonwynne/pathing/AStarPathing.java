@@ -1,64 +1,96 @@
 package com.jchevertonwynne.pathing;
 
 import com.jchevertonwynne.structures.Coord;
-import lombok.NonNull;
-import lombok.Value;
+import com.jchevertonwynne.structures.KnowledgeGrid;
 
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.PriorityQueue;
-import java.util.Set;
 
-import static com.jchevertonwynne.structures.Coord.CARDINAL_DIRECTIONS;
+import static com.jchevertonwynne.structures.Coord.dx;
+import static com.jchevertonwynne.structures.Coord.dy;
 import static java.lang.String.format;
-import static java.util.Comparator.comparingDouble;
-import static java.util.stream.Collectors.toList;
-
-public class AStarPathing {
-    @Value
-    private static class AStarPathOption {
-        double distanceEstimate;
-        int actualDistance;
-        @NonNull Coord tile;
-        @NonNull LinkedList<Coord> history;
-    }
 
-    private static final Comparator<AStarPathOption> aStarOptionComparator = comparingDouble(aStarPathOption -> aStarPathOption.getActualDistance() + aStarPathOption.getDistanceEstimate());
+/**
+ * A* over a KnowledgeGrid using int tile indices (y * width + x).
+ * Scratch buffers are kept between searches and only grow when a larger grid is seen,
+ * with generation stamps standing in for clearing the open and closed sets.
+ */
+public class AStarPathing implements PathPlanner {
+    private static final ThreadLocal<AStarPathing> searches = ThreadLocal.withInitial(AStarPathing::new);
+
+    private int[] gScore = new int[0];
+    private double[] fScore = new double[0];
+    private int[] parent = new int[0];
+    private int[] openStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int[] heapPosition = new int[0];
+    private int[] heap = new int[0];
+    private int heapSize;
+    private int generation;
+    private int expansions;
+
+    /**
+     * A* to path from current position to destination, reusing this thread's search buffers
+     * @param destination Goal coordinate
+     * @return Path to destination, excluding start
+     */
+    public static LinkedList<Coord> calculatePath(Coord start, Coord destination, KnowledgeGrid world) {
+        return searches.get().findPath(start, destination, world);
+    }
 
     /**
      * A* to path from current position to destination
      * @param destination Goal coordinate
-     * @return Path to destination, or null
+     * @return Path to destination, excluding start
      */
-    public static LinkedList<Coord> calculatePath(Coord start, Coord destination, Map<Coord, Boolean> world) {
-        Set<Coord> seen = new HashSet<>();
-        seen.add(start);
-
-        PriorityQueue<AStarPathOption> toTry = new PriorityQueue<>(aStarOptionComparator);
-        toTry.add(new AStarPathOption(
-                start.distance(destination),
-                0,
-                start,
-                new LinkedList<>()));
-
-        while (!toTry.isEmpty()) {
-            AStarPathOption nextOption = toTry.poll();
-            List<AStarPathOption> nextOptions = evaluateChoices(nextOption, destination, world);
-            Optional<AStarPathOption> result = nextOptions.stream()
-                    .filter(option -> option.getTile().equals(destination))
-                    .findFirst();
-            if (result.isPresent()) return result.get().getHistory();
-            nextOptions.stream()
-                    .filter(aStarPathOption -> !seen.contains(aStarPathOption.getTile()))
-                    .forEach(aStarPathOption -> {
-                        toTry.add(aStarPathOption);
-                        seen.add(aStarPathOption.getTile());
-                    });
+    @Override
+    public LinkedList<Coord> findPath(Coord start, Coord destination, KnowledgeGrid world) {
+        if (start.equals(destination)) {
+            expansions = 0;
+            return stepOffAndBack(start, world);
+        }
+
+        int width = world.getWidth();
+        prepare(width * world.getHeight());
+
+        int startIndex = world.index(start.getX(), start.getY());
+        int goalIndex = world.index(destination.getX(), destination.getY());
+        int goalX = destination.getX();
+        int goalY = destination.getY();
+
+        open(startIndex, 0, heuristic(start.getX(), start.getY(), goalX, goalY), startIndex);
+
+        while (heapSize > 0) {
+            int current = pop();
+            expansions++;
+            if (current == goalIndex) {
+                return reconstruct(startIndex, goalIndex, width);
+            }
+            closedStamp[current] = generation;
+
+            int x = current % width;
+            int y = current / width;
+            int nextScore = gScore[current] + 1;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + dx(direction);
+                int ny = y + dy(direction);
+                if (!world.isPathable(nx, ny)) continue;
+
+                int neighbour = world.index(nx, ny);
+                if (closedStamp[neighbour] == generation) continue;
+
+                if (openStamp[neighbour] != generation) {
+                    open(neighbour, nextScore, nextScore + heuristic(nx, ny, goalX, goalY), current);
+                }
+                else if (nextScore < gScore[neighbour]) {
+                    fScore[neighbour] -= gScore[neighbour] - nextScore;
+                    gScore[neighbour] = nextScore;
+                    parent[neighbour] = current;
+                    siftUp(heapPosition[neighbour]);
+                }
+            }
         }
+
         throw new IllegalArgumentException(
                 format(
                         "Path from %s to %s is not possible for this world",
@@ -68,29 +100,117 @@ public class AStarPathing {
         );
     }
 
+    @Override
+    public int getExpansions() {
+        return expansions;
+    }
+
     /**
-     * From a tile, find all not checked neighbour tiles
-     * @param aStarPathOption Current A* state
-     * @param goal Destination
-     * @return Unchecked neighbour A* states
+     * A path from a tile to itself steps onto the first pathable neighbour and back again
      */
-    private static List<AStarPathOption> evaluateChoices(AStarPathOption aStarPathOption, Coord goal, Map<Coord, Boolean> world) {
-        int currDist = aStarPathOption.getActualDistance();
-        Coord currTile = aStarPathOption.getTile();
-        List<Coord> history = aStarPathOption.getHistory();
-
-        return CARDINAL_DIRECTIONS.stream()
-                .map(currTile::combine)
-                .filter(coord -> world.getOrDefault(coord, false))
-                .map(coord -> {
-                    LinkedList<Coord> newHistory = new LinkedList<>(history);
-                    newHistory.add(coord);
-                    return new AStarPathOption(
-                            coord.distance(goal),
-                            currDist + 1,
-                            coord,
-                            newHistory
-                    );
-                }).collect(toList());
+    static LinkedList<Coord> stepOffAndBack(Coord start, KnowledgeGrid world) {
+        for (int direction = 0; direction < 4; direction++) {
+            int nx = start.getX() + dx(direction);
+            int ny = start.getY() + dy(direction);
+            if (world.isPathable(nx, ny)) {
+                LinkedList<Coord> path = new LinkedList<>();
+                path.add(new Coord(nx, ny));
+                path.add(start);
+                return path;
+            }
+        }
+        throw new IllegalArgumentException(format("Path from %s to itself is not possible for this world", start));
+    }
+
+    private static double heuristic(int x, int y, int goalX, int goalY) {
+        int dx = x - goalX;
+        int dy = y - goalY;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private LinkedList<Coord> reconstruct(int startIndex, int goalIndex, int width) {
+        LinkedList<Coord> path = new LinkedList<>();
+        for (int index = goalIndex; index != startIndex; index = parent[index]) {
+            path.addFirst(new Coord(index % width, index / width));
+        }
+        return path;
+    }
+
+    private void prepare(int tiles) {
+        if (gScore.length < tiles) {
+            gScore = new int[tiles];
+            fScore = new double[tiles];
+            parent = new int[tiles];
+            openStamp = new int[tiles];
+            closedStamp = new int[tiles];
+            heapPosition = new int[tiles];
+            heap = new int[tiles];
+            generation = 0;
+        }
+        heapSize = 0;
+        expansions = 0;
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+    }
+
+    private void open(int index, int g, double f, int from) {
+        openStamp[index] = generation;
+        gScore[index] = g;
+        fScore[index] = f;
+        parent[index] = from;
+        heap[heapSize] = index;
+        heapPosition[index] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapPosition[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Lower f first, breaking ties towards the deeper node
+     */
+    private boolean before(int a, int b) {
+        if (fScore[a] != fScore[b]) return fScore[a] < fScore[b];
+        return gScore[a] > gScore[b];
+    }
+
+    private void siftUp(int position) {
+        int node = heap[position];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parentNode = heap[parentPosition];
+            if (!before(node, parentNode)) break;
+            heap[position] = parentNode;
+            heapPosition[parentNode] = position;
+            position = parentPosition;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+
+    private void siftDown(int position) {
+        int node = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) child++;
+            if (!before(heap[child], node)) break;
+            heap[position] = heap[child];
+            heapPosition[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
     }
 }
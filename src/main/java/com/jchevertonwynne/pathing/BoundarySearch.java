@@ -2,120 +2,241 @@ package com.jchevertonwynne.pathing;
 
 import com.jchevertonwynne.structures.BoundarySearchResult;
 import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.FrontierSet;
+import com.jchevertonwynne.structures.KnowledgeGrid;
 import com.jchevertonwynne.structures.Move;
-import lombok.NonNull;
-import lombok.Value;
+import com.jchevertonwynne.utils.IntQueue;
+import com.jchevertonwynne.utils.SimulationConfig;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
-import static com.jchevertonwynne.structures.Coord.CARDINAL_DIRECTIONS;
-import static com.jchevertonwynne.utils.Common.DFS_MAX_TURNS_WITHOUT_FIND;
-import static com.jchevertonwynne.utils.Common.DFS_RETURN_SOFT_CAP;
-import static com.jchevertonwynne.utils.Common.SIGHT_RADIUS;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
-
+import static com.jchevertonwynne.structures.Coord.dx;
+import static com.jchevertonwynne.structures.Coord.dy;
+import static java.lang.String.format;
+
+/**
+ * Breadth first search out from an agent over its known pathable tiles, collecting the frontier
+ * tiles it passes in order of walking distance. Each unknown tile is claimed by the first frontier
+ * tile to reach it, and a frontier tile is only returned if it claims one. Only tiles in the
+ * agent's FrontierSet have their neighbours' knowledge checked, and the search works on tile
+ * indices with buffers kept between searches. The depths recorded by the same pass give the path
+ * to whichever tile is chosen.
+ */
 public class BoundarySearch {
-    @Value
-    private static class MoveHistory {
-        @NonNull Coord lastTile;
-        @NonNull Coord currentTile;
-    }
-
-    private final Coord position;
-    private final Map<Coord, Boolean> world;
-    private final Set<Coord> blacklist;
-    private final Set<Coord> resultTiles = new HashSet<>();
-    private final Set<Coord> seen = new HashSet<>();
-    private int distance = 0;
-    private int turnsWithoutFind = 0;
-    private final List<Move> legalResults = new LinkedList<>();
-    private final List<Move> blacklistedResults = new LinkedList<>();
-
-    private BoundarySearch(Coord position, Map<Coord, Boolean> world, Set<Coord> blacklist) {
-        this.position = position;
-        this.world = world;
-        this.blacklist = blacklist;
-    }
-
-    public static BoundarySearchResult calculateBoundaryTiles(Coord position, Map<Coord, Boolean> world, Set<Coord> blacklist) {
-        return new BoundarySearch(position, world, blacklist).findAvailable();
+    private static final ThreadLocal<BoundarySearch> searches = ThreadLocal.withInitial(BoundarySearch::new);
+
+    private int[] seenStamp = new int[0];
+    private int[] depth = new int[0];
+    private int generation;
+    private int[] pathStamp = new int[0];
+    private int pathGeneration;
+    private final IntQueue pathQueue = new IntQueue();
+    private IntQueue level = new IntQueue();
+    private IntQueue nextLevel = new IntQueue();
+    private int[] blacklistX = new int[0];
+    private int[] blacklistY = new int[0];
+    private int blacklistSize;
+
+    public static BoundarySearchResult calculateBoundaryTiles(Coord position, KnowledgeGrid world, FrontierSet frontier,
+                                                              Set<Coord> blacklist, SimulationConfig config) {
+        return searches.get().search(position, world, frontier, blacklist, config);
     }
 
     /**
-     * Calculate all edge tiles on current agent's world knowledge
-     * @return List of first  ~ <200 boundary tiles
+     * Calculate the frontier tiles nearest to position, stopping once dfsReturnSoftCap legal
+     * tiles are found or dfsMaxTurnsWithoutFind levels pass without a new one
+     * @return Frontier tiles split by whether they are near a blacklisted tile, each with
+     * its walking distance plus one, and the paths to them. Paths must be taken before the
+     * next search on this thread.
      */
-    private BoundarySearchResult findAvailable() {
-        BoundarySearchResult result = new BoundarySearchResult(legalResults, blacklistedResults);
-        List<MoveHistory> toCheck = new LinkedList<>();
-        toCheck.add(new MoveHistory(position, position));
-        seen.add(position);
-
-        while (!toCheck.isEmpty() && legalResults.size() < DFS_RETURN_SOFT_CAP) {
-            if (!legalResults.isEmpty() && turnsWithoutFind > DFS_MAX_TURNS_WITHOUT_FIND) {
-                return result;
+    public BoundarySearchResult search(Coord position, KnowledgeGrid world, FrontierSet frontier,
+                                       Set<Coord> blacklist, SimulationConfig config) {
+        List<Move> legalResults = new ArrayList<>();
+        List<Move> blacklistedResults = new ArrayList<>();
+        int width = world.getWidth();
+        prepare(width * world.getHeight());
+        loadBlacklist(blacklist);
+
+        int start = world.index(position.getX(), position.getY());
+        seenStamp[start] = generation;
+        depth[start] = 0;
+        level.add(start);
+
+        int distance = 0;
+        int turnsWithoutFind = 0;
+        int tilesVisited = 0;
+        int widestLevel = 0;
+        while (!level.isEmpty() && legalResults.size() < config.getDfsReturnSoftCap()) {
+            if (!legalResults.isEmpty() && turnsWithoutFind > config.getDfsMaxTurnsWithoutFind()) {
+                break;
             }
             distance++;
             turnsWithoutFind++;
+            tilesVisited += level.size();
+            widestLevel = Math.max(widestLevel, level.size());
+
+            while (!level.isEmpty()) {
+                int index = level.poll();
+                int x = index % width;
+                int y = index / width;
+                boolean onFrontier = frontier.contains(x, y);
+                boolean claimedUnknown = false;
+                for (int direction = 0; direction < 4; direction++) {
+                    int nx = x + dx(direction);
+                    int ny = y + dy(direction);
+                    if (!world.inBounds(nx, ny)) {
+                        claimedUnknown = true;
+                        continue;
+                    }
+                    int neighbour = world.index(nx, ny);
+                    if (seenStamp[neighbour] == generation) continue;
+                    seenStamp[neighbour] = generation;
+                    depth[neighbour] = -1;
+                    if (onFrontier && !world.isKnown(nx, ny)) {
+                        claimedUnknown = true;
+                    }
+                    else if (world.isPathable(nx, ny)) {
+                        depth[neighbour] = distance;
+                        nextLevel.add(neighbour);
+                    }
+                }
 
-            List<MoveHistory> nextAvailable = toCheck.stream()
-                    .map(MoveHistory::getCurrentTile)
-                    .filter(coord -> world.getOrDefault(coord, false))
-                    .flatMap(coord -> getUnvisited(coord).stream()
-                            .map(newPos -> new MoveHistory(coord, newPos))
-                    ).collect(toList());
+                if (claimedUnknown) {
+                    Move move = new Move(new Coord(x, y), distance);
+                    if (nearBlacklist(x, y, config.getSightRadius())) {
+                        blacklistedResults.add(move);
+                    }
+                    else {
+                        legalResults.add(move);
+                    }
+                    turnsWithoutFind = 0;
+                }
+            }
 
-            List<MoveHistory> nextToCheck = nextToCheckFinder(nextAvailable);
+            IntQueue finished = level;
+            level = nextLevel;
+            nextLevel = finished;
+        }
+        int searchGeneration = generation;
+        return new BoundarySearchResult(legalResults, blacklistedResults,
+                tile -> pathTo(searchGeneration, start, position, tile, world), tilesVisited, widestLevel);
+    }
 
-            seen.addAll(toCheck.stream()
-                    .map(MoveHistory::getCurrentTile)
-                    .collect(toSet()));
-            toCheck = nextToCheck;
+    /**
+     * Copy the blacklist into blacklistX and blacklistY so it can be checked against every
+     * frontier tile without iterating the set each time
+     */
+    private void loadBlacklist(Set<Coord> blacklist) {
+        blacklistSize = 0;
+        if (blacklist.isEmpty()) return;
+        if (blacklistX.length < blacklist.size()) {
+            blacklistX = new int[blacklist.size()];
+            blacklistY = new int[blacklist.size()];
+        }
+        for (Coord blacklisted : blacklist) {
+            blacklistX[blacklistSize] = blacklisted.getX();
+            blacklistY[blacklistSize] = blacklisted.getY();
+            blacklistSize++;
         }
-        return result;
     }
 
-    private List<MoveHistory> nextToCheckFinder(List<MoveHistory> nextAvailable) {
-        List<MoveHistory> nextToCheck = new ArrayList<>();
+    /**
+     * @return Whether any blacklisted tile is within radius of (x, y)
+     */
+    private boolean nearBlacklist(int x, int y, int radius) {
+        long limit = (long) radius * radius;
+        for (int i = 0; i < blacklistSize; i++) {
+            long dx = blacklistX[i] - x;
+            long dy = blacklistY[i] - y;
+            if (dx * dx + dy * dy <= limit) return true;
+        }
+        return false;
+    }
 
-        nextAvailable.forEach(nextPair -> {
-            Coord previousTile = nextPair.getLastTile();
-            Coord possibleTile = nextPair.getCurrentTile();
-            if (world.containsKey(possibleTile)) {
-                nextToCheck.add(new MoveHistory(previousTile, possibleTile));
+    /**
+     * Mark the tiles lying on any shortest path to a tile reached by the search by walking its
+     * recorded depths back to the origin, then walk forwards over the marked tiles always stepping
+     * towards the tile in a straight line. Paths come out as the A* paths they replace did, hugging
+     * the direct line rather than the first route the search happened to take.
+     * @return Path to tile, excluding start
+     */
+    private LinkedList<Coord> pathTo(int searchGeneration, int start, Coord position, Coord tile, KnowledgeGrid world) {
+        if (searchGeneration != generation) {
+            throw new IllegalStateException("Boundary search buffers have been reused since this result was made");
+        }
+        if (tile.equals(position)) {
+            return AStarPathing.stepOffAndBack(position, world);
+        }
+        int target = world.inBounds(tile) ? world.index(tile.getX(), tile.getY()) : -1;
+        if (target < 0 || seenStamp[target] != generation || depth[target] < 0) {
+            throw new IllegalArgumentException(format("%s was not reached by the search from %s", tile, position));
+        }
+
+        if (++pathGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(pathStamp, 0);
+            pathGeneration = 1;
+        }
+        int width = world.getWidth();
+        pathStamp[target] = pathGeneration;
+        pathQueue.clear();
+        pathQueue.add(target);
+        while (!pathQueue.isEmpty()) {
+            int index = pathQueue.poll();
+            int wanted = depth[index] - 1;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = index % width + dx(direction);
+                int ny = index / width + dy(direction);
+                if (!world.inBounds(nx, ny)) continue;
+                int neighbour = world.index(nx, ny);
+                if (seenStamp[neighbour] != generation || depth[neighbour] != wanted || pathStamp[neighbour] == pathGeneration) continue;
+                pathStamp[neighbour] = pathGeneration;
+                pathQueue.add(neighbour);
             }
-            else if (!resultTiles.contains(previousTile)) {
-                Move move = new Move(previousTile, distance);
-                boolean closeToBlacklist = blacklist.stream().anyMatch(tile -> tile.distance(previousTile) <= SIGHT_RADIUS);
-                if (closeToBlacklist) {
-                    blacklistedResults.add(move);
-                }
-                else {
-                    legalResults.add(move);
+        }
+
+        LinkedList<Coord> path = new LinkedList<>();
+        int index = start;
+        while (index != target) {
+            int wanted = depth[index] + 1;
+            int next = -1;
+            long bestDistance = Long.MAX_VALUE;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = index % width + dx(direction);
+                int ny = index / width + dy(direction);
+                if (!world.inBounds(nx, ny)) continue;
+                int neighbour = world.index(nx, ny);
+                if (pathStamp[neighbour] != pathGeneration || depth[neighbour] != wanted) continue;
+                long dx = nx - tile.getX();
+                long dy = ny - tile.getY();
+                long straightDistance = dx * dx + dy * dy;
+                if (straightDistance < bestDistance) {
+                    bestDistance = straightDistance;
+                    next = neighbour;
                 }
-                resultTiles.add(previousTile);
-                turnsWithoutFind = 0;
             }
-        });
-
-        return nextToCheck;
+            index = next;
+            path.add(new Coord(index % width, index / width));
+        }
+        return path;
     }
 
-    /**
-     * @param position Position to check surrounding tiles
-     * @return Unconsidered neighbour tiles
-     */
-    private List<Coord> getUnvisited(Coord position) {
-        return CARDINAL_DIRECTIONS.stream()
-                .map(position::combine)
-                .filter(coord -> !seen.contains(coord))
-                .peek(seen::add)
-                .collect(toList());
+    private void prepare(int tiles) {
+        if (seenStamp.length < tiles) {
+            seenStamp = new int[tiles];
+            depth = new int[tiles];
+            pathStamp = new int[tiles];
+            pathGeneration = 0;
+            generation = 0;
+        }
+        level.clear();
+        nextLevel.clear();
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seenStamp, 0);
+            generation = 1;
+        }
     }
 }
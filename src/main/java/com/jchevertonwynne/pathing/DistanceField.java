@@ -0,0 +1,180 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+import com.jchevertonwynne.utils.IntQueue;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static com.jchevertonwynne.structures.Coord.dx;
+import static com.jchevertonwynne.structures.Coord.dy;
+import static java.lang.String.format;
+
+/**
+ * Walking distance from a source tile to every known pathable tile, kept up to date as tiles
+ * are discovered. Tiles only ever become known, so distances only ever shrink; each update
+ * relaxes outwards from the new tiles and stops wherever nothing improves. The field doubles as
+ * a tree of shortest paths back to the source, read by stepping downhill from any reachable tile.
+ */
+public class DistanceField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final KnowledgeGrid world;
+    private final int width;
+    private final int sourceIndex;
+    private final int[] distances;
+    private final IntQueue toRelax = new IntQueue();
+
+    public DistanceField(KnowledgeGrid world, Coord source) {
+        this.world = world;
+        this.width = world.getWidth();
+        this.sourceIndex = world.index(source.getX(), source.getY());
+        this.distances = new int[width * world.getHeight()];
+        Arrays.fill(distances, UNREACHABLE);
+        distances[sourceIndex] = 0;
+        toRelax.add(sourceIndex);
+        update();
+    }
+
+    public int get(int x, int y) {
+        return world.inBounds(x, y) ? distances[world.index(x, y)] : UNREACHABLE;
+    }
+
+    public int get(Coord coord) {
+        return get(coord.getX(), coord.getY());
+    }
+
+    public boolean isReachable(Coord coord) {
+        return get(coord) != UNREACHABLE;
+    }
+
+    /**
+     * Note a tile newly known to be pathable. Distances are brought up to date on the next update.
+     */
+    public void tileAdded(int x, int y) {
+        int index = world.index(x, y);
+        int best = UNREACHABLE;
+        for (int direction = 0; direction < 4; direction++) {
+            int neighbour = get(x + dx(direction), y + dy(direction));
+            if (neighbour < best) best = neighbour;
+        }
+        if (best != UNREACHABLE && best + 1 < distances[index]) {
+            distances[index] = best + 1;
+            toRelax.add(index);
+        }
+    }
+
+    /**
+     * Relax every tile whose distance can improve through the tiles added since the last update
+     */
+    public void update() {
+        while (!toRelax.isEmpty()) {
+            int index = toRelax.poll();
+            int x = index % width;
+            int y = index / width;
+            int next = distances[index] + 1;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + dx(direction);
+                int ny = y + dy(direction);
+                if (!world.isPathable(nx, ny)) continue;
+                int neighbour = world.index(nx, ny);
+                if (next < distances[neighbour]) {
+                    distances[neighbour] = next;
+                    toRelax.add(neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shortest path to the source, found by stepping to the closest neighbour each time, so it
+     * costs no more than its length once the field is up to date. Ties go to the neighbour nearest
+     * the source in a straight line, which keeps paths across open ground close to the straight
+     * line home.
+     * @return Path to the source, excluding from
+     * @throws IllegalArgumentException If from is not reachable from the source
+     */
+    public LinkedList<Coord> pathToSource(Coord from) {
+        int x = from.getX();
+        int y = from.getY();
+        int distance = get(x, y);
+        if (distance == UNREACHABLE) {
+            throw new IllegalArgumentException(format("Path from %s to the source is not possible for this world", from));
+        }
+        if (distance == 0) {
+            return AStarPathing.stepOffAndBack(from, world);
+        }
+
+        int sourceX = sourceIndex % width;
+        int sourceY = sourceIndex / width;
+        LinkedList<Coord> path = new LinkedList<>();
+        while (distance > 0) {
+            int bestX = x;
+            int bestY = y;
+            int bestDistance = UNREACHABLE;
+            long bestStraight = Long.MAX_VALUE;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + dx(direction);
+                int ny = y + dy(direction);
+                int neighbour = get(nx, ny);
+                if (neighbour >= distance || neighbour > bestDistance) continue;
+                long dx = nx - sourceX;
+                long dy = ny - sourceY;
+                long straight = dx * dx + dy * dy;
+                if (neighbour < bestDistance || straight < bestStraight) {
+                    bestDistance = neighbour;
+                    bestStraight = straight;
+                    bestX = nx;
+                    bestY = ny;
+                }
+            }
+            x = bestX;
+            y = bestY;
+            distance = bestDistance;
+            path.add(new Coord(x, y));
+        }
+        return path;
+    }
+
+    /**
+     * Compare against a full breadth first search of the world
+     * @throws IllegalStateException on the first tile whose distance differs
+     */
+    public void verify() {
+        int[] expected = recompute(world, sourceIndex);
+        for (int index = 0; index < expected.length; index++) {
+            if (expected[index] != distances[index]) {
+                throw new IllegalStateException(format(
+                        "Incremental distance to (%d, %d) is %d but a full search gives %d",
+                        index % width, index / width, distances[index], expected[index]
+                ));
+            }
+        }
+    }
+
+    private static int[] recompute(KnowledgeGrid world, int sourceIndex) {
+        int width = world.getWidth();
+        int[] result = new int[width * world.getHeight()];
+        Arrays.fill(result, UNREACHABLE);
+        result[sourceIndex] = 0;
+        IntQueue queue = new IntQueue();
+        queue.add(sourceIndex);
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            int x = index % width;
+            int y = index / width;
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + dx(direction);
+                int ny = y + dy(direction);
+                if (!world.isPathable(nx, ny)) continue;
+                int neighbour = world.index(nx, ny);
+                if (result[neighbour] == UNREACHABLE) {
+                    result[neighbour] = result[index] + 1;
+                    queue.add(neighbour);
+                }
+            }
+        }
+        return result;
+    }
+}
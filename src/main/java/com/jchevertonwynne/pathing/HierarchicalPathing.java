@@ -0,0 +1,555 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.profiling.TickProfiler;
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+import com.jchevertonwynne.utils.IntQueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static com.jchevertonwynne.structures.Coord.dx;
+import static com.jchevertonwynne.structures.Coord.dy;
+import static java.lang.String.format;
+
+/**
+ * Hierarchical A* over a KnowledgeGrid. The grid is cut into square clusters, and wherever a
+ * run of known pathable tiles crosses the border between two clusters the middle pair of the run
+ * become entrances. Walking distances between the entrances of a cluster are worked out once and
+ * kept until a pathable tile is learned in or on the edge of that cluster, so a long path costs a
+ * search over entrances followed by short searches inside the clusters it passes through.
+ * <p>
+ * Paths may be slightly longer than the shortest, as clusters are only crossed into at the middle
+ * of each run. Short hops are passed straight to a grid planner. Once refreshed, searches only read
+ * the cached clusters, so a refreshed instance may be searched from several threads at once.
+ */
+public class HierarchicalPathing {
+    public static final int CLUSTER_SIZE = 16;
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final ThreadLocal<ClusterSearch> clusterSearches = ThreadLocal.withInitial(ClusterSearch::new);
+    private static final ThreadLocal<RouteSearch> routeSearches = ThreadLocal.withInitial(RouteSearch::new);
+
+    /**
+     * Entrances of one cluster, each with its partner tile across the border, and the walking
+     * distance within the cluster between every pair of entrances
+     */
+    private static class Cluster {
+        int[] entrances = new int[0];
+        int[] partners = new int[0];
+        int[] distances = new int[0];
+        boolean dirty = true;
+    }
+
+    /**
+     * Breadth first search confined to one cluster, over tile indices local to the cluster
+     */
+    private static class ClusterSearch {
+        private int[] distance = new int[0];
+        private int[] stamp = new int[0];
+        private int generation;
+        private final IntQueue queue = new IntQueue();
+        private int left;
+        private int top;
+        private int size;
+
+        void search(KnowledgeGrid world, int left, int top, int size, int source) {
+            this.left = left;
+            this.top = top;
+            this.size = size;
+            if (stamp.length < size * size) {
+                distance = new int[size * size];
+                stamp = new int[size * size];
+            }
+            generation++;
+            queue.clear();
+
+            int width = world.getWidth();
+            visit(source % width - left, source / width - top, 0);
+            while (!queue.isEmpty()) {
+                int local = queue.poll();
+                int x = local % size + left;
+                int y = local / size + top;
+                int next = distance[local] + 1;
+                for (int direction = 0; direction < 4; direction++) {
+                    int nx = x + dx(direction);
+                    int ny = y + dy(direction);
+                    if (nx < left || ny < top || nx >= left + size || ny >= top + size) continue;
+                    if (!world.isPathable(nx, ny)) continue;
+                    int neighbour = (ny - top) * size + nx - left;
+                    if (stamp[neighbour] == generation) continue;
+                    visit(nx - left, ny - top, next);
+                }
+            }
+        }
+
+        private void visit(int localX, int localY, int value) {
+            int local = localY * size + localX;
+            stamp[local] = generation;
+            distance[local] = value;
+            queue.add(local);
+        }
+
+        int distanceTo(int x, int y) {
+            if (x < left || y < top || x >= left + size || y >= top + size) return UNREACHABLE;
+            int local = (y - top) * size + x - left;
+            return stamp[local] == generation ? distance[local] : UNREACHABLE;
+        }
+
+        /**
+         * Walk back from a tile to the source of the last search, adding the tiles passed to the
+         * end of path, source excluded and the tile itself included
+         */
+        void appendPathTo(int x, int y, LinkedList<Coord> path) {
+            LinkedList<Coord> section = new LinkedList<>();
+            int remaining = distanceTo(x, y);
+            if (remaining == UNREACHABLE) {
+                throw new IllegalStateException(format("%d,%d was not reached within its cluster", x, y));
+            }
+            while (remaining > 0) {
+                section.addFirst(new Coord(x, y));
+                for (int direction = 0; direction < 4; direction++) {
+                    int nx = x + dx(direction);
+                    int ny = y + dy(direction);
+                    if (distanceTo(nx, ny) == remaining - 1) {
+                        x = nx;
+                        y = ny;
+                        break;
+                    }
+                }
+                remaining--;
+            }
+            path.addAll(section);
+        }
+    }
+
+    /**
+     * A* over entrance slots, with the start and destination as the two nodes after the last
+     * slot. Buffers are kept between searches in the same way as AStarPathing.
+     */
+    private static class RouteSearch {
+        private int[] gScore = new int[0];
+        private int[] fScore = new int[0];
+        private int[] parent = new int[0];
+        private int[] openStamp = new int[0];
+        private int[] closedStamp = new int[0];
+        private int[] heapPosition = new int[0];
+        private int[] heap = new int[0];
+        private int[] toGoal = new int[0];
+        private int heapSize;
+        private int generation;
+
+        void prepare(int nodes) {
+            if (gScore.length < nodes) {
+                gScore = new int[nodes];
+                fScore = new int[nodes];
+                parent = new int[nodes];
+                openStamp = new int[nodes];
+                closedStamp = new int[nodes];
+                heapPosition = new int[nodes];
+                heap = new int[nodes];
+                generation = 0;
+            }
+            heapSize = 0;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(openStamp, 0);
+                Arrays.fill(closedStamp, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * @return Scratch space for the distance from each entrance of the destination's cluster
+         * to the destination
+         */
+        int[] toGoal(int entrances) {
+            if (toGoal.length < entrances) toGoal = new int[entrances];
+            return toGoal;
+        }
+
+        void relax(int node, int g, int f, int from) {
+            if (closedStamp[node] == generation) return;
+            if (openStamp[node] != generation) {
+                open(node, g, f, from);
+            }
+            else if (g < gScore[node]) {
+                fScore[node] -= gScore[node] - g;
+                gScore[node] = g;
+                parent[node] = from;
+                siftUp(heapPosition[node]);
+            }
+        }
+
+        /**
+         * @return Tile indices of the route from start to goal, mapping slots through slotTile
+         */
+        int[] reconstruct(int startNode, int goalNode, int[] slotTile, int startIndex, int goalIndex) {
+            int length = 1;
+            for (int node = goalNode; node != startNode; node = parent[node]) {
+                length++;
+            }
+            int[] route = new int[length];
+            route[0] = startIndex;
+            route[length - 1] = goalIndex;
+            int position = length - 2;
+            for (int node = parent[goalNode]; node != startNode; node = parent[node]) {
+                route[position--] = slotTile[node];
+            }
+            return route;
+        }
+
+        void open(int node, int g, int f, int from) {
+            openStamp[node] = generation;
+            gScore[node] = g;
+            fScore[node] = f;
+            parent[node] = from;
+            heap[heapSize] = node;
+            heapPosition[node] = heapSize;
+            siftUp(heapSize++);
+        }
+
+        int pop() {
+            int top = heap[0];
+            int last = heap[--heapSize];
+            if (heapSize > 0) {
+                heap[0] = last;
+                heapPosition[last] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        /**
+         * Lower f first, breaking ties towards the deeper node
+         */
+        private boolean before(int a, int b) {
+            if (fScore[a] != fScore[b]) return fScore[a] < fScore[b];
+            return gScore[a] > gScore[b];
+        }
+
+        private void siftUp(int position) {
+            int node = heap[position];
+            while (position > 0) {
+                int parentPosition = (position - 1) >>> 1;
+                int parentNode = heap[parentPosition];
+                if (!before(node, parentNode)) break;
+                heap[position] = parentNode;
+                heapPosition[parentNode] = position;
+                position = parentPosition;
+            }
+            heap[position] = node;
+            heapPosition[node] = position;
+        }
+
+        private void siftDown(int position) {
+            int node = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && before(heap[child + 1], heap[child])) child++;
+                if (!before(heap[child], node)) break;
+                heap[position] = heap[child];
+                heapPosition[heap[position]] = position;
+                position = child;
+            }
+            heap[position] = node;
+            heapPosition[node] = position;
+        }
+    }
+
+    private final KnowledgeGrid world;
+    private final PathPlannerType planner;
+    private final int columns;
+    private final int rows;
+    private final Cluster[] clusters;
+    private int dirtyCount;
+    /**
+     * Every entrance of every cluster numbered in cluster order, each cluster's starting at its
+     * slotBase, with the tile and the slot of the partner across the border of each
+     */
+    private final int[] slotBase;
+    private int[] slotTile = new int[0];
+    private int[] slotPartner = new int[0];
+    private TickProfiler profiler = TickProfiler.disabled();
+
+    public HierarchicalPathing(KnowledgeGrid world) {
+        this(world, PathPlannerType.ASTAR);
+    }
+
+    /**
+     * @param planner Search for short hops, and for paths the entrances cannot be used for
+     */
+    public HierarchicalPathing(KnowledgeGrid world, PathPlannerType planner) {
+        this.world = world;
+        this.planner = planner;
+        this.columns = (world.getWidth() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.rows = (world.getHeight() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clusters = new Cluster[columns * rows];
+        this.slotBase = new int[clusters.length];
+        for (int i = 0; i < clusters.length; i++) {
+            clusters[i] = new Cluster();
+        }
+        dirtyCount = clusters.length;
+    }
+
+    /**
+     * Note a tile newly known to be pathable. Its cluster, and the neighbouring cluster if it
+     * lies on a border, are worked out again on the next refresh.
+     */
+    public void tileAdded(int x, int y) {
+        int column = x / CLUSTER_SIZE;
+        int row = y / CLUSTER_SIZE;
+        markDirty(column, row);
+        if (x % CLUSTER_SIZE == 0) markDirty(column - 1, row);
+        if (x % CLUSTER_SIZE == CLUSTER_SIZE - 1) markDirty(column + 1, row);
+        if (y % CLUSTER_SIZE == 0) markDirty(column, row - 1);
+        if (y % CLUSTER_SIZE == CLUSTER_SIZE - 1) markDirty(column, row + 1);
+    }
+
+    /**
+     * Count the work of the grid planner from here on
+     */
+    public void profileWith(TickProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Work out the entrances and distances of every cluster changed since the last refresh
+     */
+    public void refresh() {
+        if (dirtyCount == 0) return;
+        ClusterSearch search = clusterSearches.get();
+        for (int cluster = 0; cluster < clusters.length; cluster++) {
+            if (clusters[cluster].dirty) {
+                rebuild(cluster, search);
+            }
+        }
+        indexSlots();
+        dirtyCount = 0;
+    }
+
+    /**
+     * Path between two known pathable tiles, through the cluster entrances unless they are close
+     * @return Path to destination, excluding start
+     */
+    public LinkedList<Coord> calculatePath(Coord start, Coord destination) {
+        int startCluster = clusterOf(start.getX(), start.getY());
+        int goalCluster = clusterOf(destination.getX(), destination.getY());
+        int manhattan = Math.abs(start.getX() - destination.getX()) + Math.abs(start.getY() - destination.getY());
+        if (startCluster == goalCluster || manhattan <= 2 * CLUSTER_SIZE) {
+            return planDirectly(start, destination);
+        }
+        refresh();
+
+        int[] route = abstractRoute(start, destination, startCluster, goalCluster);
+        if (route == null) {
+            return planDirectly(start, destination);
+        }
+        return refine(route);
+    }
+
+    private LinkedList<Coord> planDirectly(Coord start, Coord destination) {
+        LinkedList<Coord> path = planner.calculatePath(start, destination, world);
+        profiler.count(TickProfiler.Counter.PLANNER_EXPANSIONS, planner.getExpansions());
+        return path;
+    }
+
+    /**
+     * A* over the entrances, from start to destination
+     * @return Tile indices of start, each entrance passed and destination, or null if the
+     * entrances do not connect them
+     */
+    private int[] abstractRoute(Coord start, Coord destination, int startCluster, int goalCluster) {
+        int width = world.getWidth();
+        int startIndex = world.index(start.getX(), start.getY());
+        int goalIndex = world.index(destination.getX(), destination.getY());
+        int startNode = slotTile.length;
+        int goalNode = startNode + 1;
+        ClusterSearch search = clusterSearches.get();
+        RouteSearch route = routeSearches.get();
+        route.prepare(goalNode + 1);
+
+        Cluster last = clusters[goalCluster];
+        int[] toGoal = route.toGoal(last.entrances.length);
+        search(search, goalCluster, goalIndex);
+        for (int i = 0; i < last.entrances.length; i++) {
+            toGoal[i] = search.distanceTo(last.entrances[i] % width, last.entrances[i] / width);
+        }
+
+        Cluster first = clusters[startCluster];
+        search(search, startCluster, startIndex);
+        for (int i = 0; i < first.entrances.length; i++) {
+            int distance = search.distanceTo(first.entrances[i] % width, first.entrances[i] / width);
+            if (distance != UNREACHABLE) relax(route, slotBase[startCluster] + i, distance, startNode, goalIndex);
+        }
+
+        while (route.heapSize > 0) {
+            int current = route.pop();
+            if (current == goalNode) {
+                return route.reconstruct(startNode, goalNode, slotTile, startIndex, goalIndex);
+            }
+            route.closedStamp[current] = route.generation;
+
+            int g = route.gScore[current];
+            int tile = slotTile[current];
+            int cluster = clusterOf(tile % width, tile / width);
+            Cluster here = clusters[cluster];
+            int base = slotBase[cluster];
+            int row = current - base;
+            if (slotPartner[current] >= 0) relax(route, slotPartner[current], g + 1, current, goalIndex);
+            int count = here.entrances.length;
+            for (int j = 0; j < count; j++) {
+                int distance = here.distances[row * count + j];
+                if (j != row && distance != UNREACHABLE) relax(route, base + j, g + distance, current, goalIndex);
+            }
+            if (cluster == goalCluster && toGoal[row] != UNREACHABLE) {
+                route.relax(goalNode, g + toGoal[row], g + toGoal[row], current);
+            }
+        }
+        return null;
+    }
+
+    private void relax(RouteSearch route, int slot, int g, int from, int goalIndex) {
+        route.relax(slot, g, g + heuristic(slotTile[slot], goalIndex), from);
+    }
+
+    /**
+     * Fill in the tiles between each step of an abstract route
+     */
+    private LinkedList<Coord> refine(int[] route) {
+        int width = world.getWidth();
+        ClusterSearch search = clusterSearches.get();
+        LinkedList<Coord> path = new LinkedList<>();
+        for (int i = 1; i < route.length; i++) {
+            int from = route[i - 1];
+            int to = route[i];
+            int toX = to % width;
+            int toY = to / width;
+            int cluster = clusterOf(from % width, from / width);
+            if (cluster != clusterOf(toX, toY)) {
+                path.add(new Coord(toX, toY));
+            }
+            else {
+                search(search, cluster, from);
+                search.appendPathTo(toX, toY, path);
+            }
+        }
+        return path;
+    }
+
+    private void rebuild(int cluster, ClusterSearch search) {
+        int width = world.getWidth();
+        int column = cluster % columns;
+        int row = cluster / columns;
+        int left = column * CLUSTER_SIZE;
+        int top = row * CLUSTER_SIZE;
+        int right = Math.min(left + CLUSTER_SIZE, world.getWidth()) - 1;
+        int bottom = Math.min(top + CLUSTER_SIZE, world.getHeight()) - 1;
+
+        List<int[]> entrances = new ArrayList<>();
+        if (column > 0) addEntrances(entrances, left, top, 0, 1, bottom - top + 1, -1, 0);
+        if (column < columns - 1) addEntrances(entrances, right, top, 0, 1, bottom - top + 1, 1, 0);
+        if (row > 0) addEntrances(entrances, left, top, 1, 0, right - left + 1, 0, -1);
+        if (row < rows - 1) addEntrances(entrances, left, bottom, 1, 0, right - left + 1, 0, 1);
+
+        Cluster built = clusters[cluster];
+        int count = entrances.size();
+        built.entrances = new int[count];
+        built.partners = new int[count];
+        built.distances = new int[count * count];
+        for (int i = 0; i < count; i++) {
+            built.entrances[i] = entrances.get(i)[0];
+            built.partners[i] = entrances.get(i)[1];
+        }
+        for (int i = 0; i < count; i++) {
+            search(search, cluster, built.entrances[i]);
+            for (int j = 0; j < count; j++) {
+                built.distances[i * count + j] = search.distanceTo(built.entrances[j] % width, built.entrances[j] / width);
+            }
+        }
+        built.dirty = false;
+    }
+
+    /**
+     * Add an entrance for the middle of every run of pathable tiles along one side of a cluster
+     * whose partners across the border are pathable too
+     * @param stepX Direction along the side
+     * @param crossX Direction across the border
+     */
+    private void addEntrances(List<int[]> entrances, int x, int y, int stepX, int stepY, int length, int crossX, int crossY) {
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int tx = x + i * stepX;
+            int ty = y + i * stepY;
+            boolean open = i < length && world.isPathable(tx, ty) && world.isPathable(tx + crossX, ty + crossY);
+            if (open && runStart < 0) {
+                runStart = i;
+            }
+            else if (!open && runStart >= 0) {
+                int middle = (runStart + i - 1) / 2;
+                int mx = x + middle * stepX;
+                int my = y + middle * stepY;
+                entrances.add(new int[]{world.index(mx, my), world.index(mx + crossX, my + crossY)});
+                runStart = -1;
+            }
+        }
+    }
+
+    private void indexSlots() {
+        int total = 0;
+        for (int cluster = 0; cluster < clusters.length; cluster++) {
+            slotBase[cluster] = total;
+            total += clusters[cluster].entrances.length;
+        }
+        slotTile = new int[total];
+        slotPartner = new int[total];
+        for (int cluster = 0; cluster < clusters.length; cluster++) {
+            Cluster here = clusters[cluster];
+            System.arraycopy(here.entrances, 0, slotTile, slotBase[cluster], here.entrances.length);
+        }
+        int width = world.getWidth();
+        for (int cluster = 0; cluster < clusters.length; cluster++) {
+            Cluster here = clusters[cluster];
+            for (int i = 0; i < here.entrances.length; i++) {
+                int partner = here.partners[i];
+                int across = clusterOf(partner % width, partner / width);
+                slotPartner[slotBase[cluster] + i] = slotOf(across, partner, here.entrances[i]);
+            }
+        }
+    }
+
+    /**
+     * @return Slot of the entrance at tile in a cluster whose partner is the given tile, or -1
+     */
+    private int slotOf(int cluster, int tile, int partner) {
+        Cluster here = clusters[cluster];
+        for (int i = 0; i < here.entrances.length; i++) {
+            if (here.entrances[i] == tile && here.partners[i] == partner) return slotBase[cluster] + i;
+        }
+        return -1;
+    }
+
+    private void search(ClusterSearch search, int cluster, int source) {
+        search.search(world, (cluster % columns) * CLUSTER_SIZE, (cluster / columns) * CLUSTER_SIZE, CLUSTER_SIZE, source);
+    }
+
+    private void markDirty(int column, int row) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows) return;
+        Cluster cluster = clusters[row * columns + column];
+        if (!cluster.dirty) {
+            cluster.dirty = true;
+            dirtyCount++;
+        }
+    }
+
+    private int clusterOf(int x, int y) {
+        return (y / CLUSTER_SIZE) * columns + x / CLUSTER_SIZE;
+    }
+
+    private int heuristic(int from, int to) {
+        int width = world.getWidth();
+        return Math.abs(from % width - to % width) + Math.abs(from / width - to / width);
+    }
+}
@@ -0,0 +1,273 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static com.jchevertonwynne.structures.Coord.dx;
+import static com.jchevertonwynne.structures.Coord.dy;
+import static java.lang.String.format;
+
+/**
+ * Jump point search over a KnowledgeGrid with cardinal moves only. Of the many equally short
+ * paths across open ground, only those that go horizontally first are followed: a vertical run
+ * turns only where a wall beside the previous tile made turning earlier impossible, and a
+ * horizontal run stops only where a vertical run from it would reach such a turn or the goal.
+ * Runs are scanned without touching the open set, so only their ends are expanded, and the
+ * paths found are as short as those from AStarPathing.
+ * <p>
+ * Scratch buffers are kept between searches in the same way as AStarPathing.
+ */
+public class JumpPointPathing implements PathPlanner {
+    private static final int NOT_FOUND = -1;
+    private static final int FROM_START = -1;
+
+    private int[] gScore = new int[0];
+    private int[] fScore = new int[0];
+    private int[] parent = new int[0];
+    private int[] arrival = new int[0];
+    private int[] openStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int[] heapPosition = new int[0];
+    private int[] heap = new int[0];
+    private int heapSize;
+    private int generation;
+    private int expansions;
+
+    private KnowledgeGrid world;
+    private int goalX;
+    private int goalY;
+
+    @Override
+    public LinkedList<Coord> findPath(Coord start, Coord destination, KnowledgeGrid world) {
+        if (start.equals(destination)) {
+            expansions = 0;
+            return AStarPathing.stepOffAndBack(start, world);
+        }
+
+        int width = world.getWidth();
+        prepare(width * world.getHeight());
+        this.world = world;
+        goalX = destination.getX();
+        goalY = destination.getY();
+
+        int startIndex = world.index(start.getX(), start.getY());
+        int goalIndex = world.index(goalX, goalY);
+        open(startIndex, 0, heuristic(start.getX(), start.getY()), startIndex, FROM_START);
+
+        try {
+            while (heapSize > 0) {
+                int current = pop();
+                expansions++;
+                if (current == goalIndex) {
+                    return reconstruct(startIndex, goalIndex, width);
+                }
+                closedStamp[current] = generation;
+
+                int x = current % width;
+                int y = current / width;
+                for (int direction = 0; direction < 4; direction++) {
+                    if (shouldJump(x, y, arrival[current], direction)) {
+                        int found = jump(x, y, direction);
+                        if (found != NOT_FOUND) {
+                            consider(current, found, direction, width);
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            this.world = null;
+        }
+
+        throw new IllegalArgumentException(
+                format(
+                        "Path from %s to %s is not possible for this world",
+                        start.toString(),
+                        destination.toString()
+                )
+        );
+    }
+
+    @Override
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * The start jumps every way. A tile reached horizontally carries on and jumps both ways
+     * vertically, and a tile reached vertically carries on and jumps horizontally only towards
+     * a forced neighbour.
+     */
+    private boolean shouldJump(int x, int y, int from, int direction) {
+        if (from == FROM_START) return true;
+        if (direction == opposite(from)) return false;
+        if (dx(from) != 0 || direction == from) return true;
+        return forced(x, y, dx(direction), dy(from));
+    }
+
+    /**
+     * @return Whether the tile beside (x, y) can be stepped onto but the one beside the tile
+     * before it, when moving vertically by dy, cannot
+     */
+    private boolean forced(int x, int y, int dx, int dy) {
+        return world.isPathable(x + dx, y) && !world.isPathable(x + dx, y - dy);
+    }
+
+    /**
+     * @return Index of the first jump point from (x, y) in direction, or NOT_FOUND if a wall
+     * comes first
+     */
+    private int jump(int x, int y, int direction) {
+        int dx = dx(direction);
+        int dy = dy(direction);
+        while (true) {
+            x += dx;
+            y += dy;
+            if (!world.isPathable(x, y)) return NOT_FOUND;
+            if (x == goalX && y == goalY) return world.index(x, y);
+            if (dx != 0) {
+                if (jumpVertical(x, y, 1) || jumpVertical(x, y, -1)) return world.index(x, y);
+            }
+            else if (forced(x, y, 1, dy) || forced(x, y, -1, dy)) {
+                return world.index(x, y);
+            }
+        }
+    }
+
+    private boolean jumpVertical(int x, int y, int dy) {
+        while (true) {
+            y += dy;
+            if (!world.isPathable(x, y)) return false;
+            if ((x == goalX && y == goalY) || forced(x, y, 1, dy) || forced(x, y, -1, dy)) return true;
+        }
+    }
+
+    private void consider(int current, int found, int direction, int width) {
+        if (closedStamp[found] == generation) return;
+        int fx = found % width;
+        int fy = found / width;
+        int g = gScore[current] + Math.abs(fx - current % width) + Math.abs(fy - current / width);
+        if (openStamp[found] != generation) {
+            open(found, g, g + heuristic(fx, fy), current, direction);
+        }
+        else if (g < gScore[found]) {
+            fScore[found] -= gScore[found] - g;
+            gScore[found] = g;
+            parent[found] = current;
+            arrival[found] = direction;
+            siftUp(heapPosition[found]);
+        }
+    }
+
+    private int heuristic(int x, int y) {
+        return Math.abs(x - goalX) + Math.abs(y - goalY);
+    }
+
+    private static int opposite(int direction) {
+        return (direction + 2) % 4;
+    }
+
+    /**
+     * Jump points are joined by straight runs, which are filled back in tile by tile
+     */
+    private LinkedList<Coord> reconstruct(int startIndex, int goalIndex, int width) {
+        LinkedList<Coord> path = new LinkedList<>();
+        for (int index = goalIndex; index != startIndex; index = parent[index]) {
+            int x = index % width;
+            int y = index / width;
+            int px = parent[index] % width;
+            int py = parent[index] / width;
+            int dx = Integer.signum(px - x);
+            int dy = Integer.signum(py - y);
+            while (x != px || y != py) {
+                path.addFirst(new Coord(x, y));
+                x += dx;
+                y += dy;
+            }
+        }
+        return path;
+    }
+
+    private void prepare(int tiles) {
+        if (gScore.length < tiles) {
+            gScore = new int[tiles];
+            fScore = new int[tiles];
+            parent = new int[tiles];
+            arrival = new int[tiles];
+            openStamp = new int[tiles];
+            closedStamp = new int[tiles];
+            heapPosition = new int[tiles];
+            heap = new int[tiles];
+            generation = 0;
+        }
+        heapSize = 0;
+        expansions = 0;
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+    }
+
+    private void open(int index, int g, int f, int from, int direction) {
+        openStamp[index] = generation;
+        gScore[index] = g;
+        fScore[index] = f;
+        parent[index] = from;
+        arrival[index] = direction;
+        heap[heapSize] = index;
+        heapPosition[index] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapPosition[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Lower f first, breaking ties towards the deeper node
+     */
+    private boolean before(int a, int b) {
+        if (fScore[a] != fScore[b]) return fScore[a] < fScore[b];
+        return gScore[a] > gScore[b];
+    }
+
+    private void siftUp(int position) {
+        int node = heap[position];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parentNode = heap[parentPosition];
+            if (!before(node, parentNode)) break;
+            heap[position] = parentNode;
+            heapPosition[parentNode] = position;
+            position = parentPosition;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+
+    private void siftDown(int position) {
+        int node = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) child++;
+            if (!before(heap[child], node)) break;
+            heap[position] = heap[child];
+            heapPosition[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+}
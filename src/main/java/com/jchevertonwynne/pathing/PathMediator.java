@@ -5,20 +5,26 @@ import com.jchevertonwynne.structures.Coord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Settles which of two agents heading the same way keeps its goal, once per pair of agents.
+ * Pairs without an agent in common may be mediated from different threads at once.
+ */
 public class PathMediator {
     private static final Logger logger = LoggerFactory.getLogger(PathMediator.class);
-    private final Set<Integer> checked = new HashSet<>();
+    private final Set<Long> checked = ConcurrentHashMap.newKeySet();
 
+    /**
+     * The agent further from its goal blacklists the other's goal, unless this pair has been
+     * mediated already
+     * @return Whether an agent needs to choose a new move
+     */
     public boolean mediate(SwarmAgent a, SwarmAgent b) {
-        int combinedHash = a.hashCode() ^ b.hashCode();
-
-        if (checked.contains(combinedHash)) {
+        if (!checked.add(pairKey(a.getId(), b.getId()))) {
             return false;
         }
-        checked.add(combinedHash);
 
         double aDistanceToGoal = a.distanceToGoal();
         double bDistanceToGoal = b.distanceToGoal();
@@ -37,7 +43,14 @@ public class PathMediator {
 
         Coord toBan = x.getCurrentGoal();
         boolean blacklisted = y.blacklistCoord(toBan);
-        if (blacklisted) logger.info("Agent {} continuing to {}, agent {} to make new choice of move", x, toBan, y);
+        if (blacklisted) logger.debug("Agent {} continuing to {}, agent {} to make new choice of move", x, toBan, y);
         return blacklisted;
     }
+
+    /**
+     * @return The same key for the pair in either order, distinct for every other pair
+     */
+    public static long pairKey(int first, int second) {
+        return (long) Math.min(first, second) << 32 | Math.max(first, second);
+    }
 }
@@ -0,0 +1,25 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+
+import java.util.LinkedList;
+
+/**
+ * Shortest path search between two known pathable tiles of a KnowledgeGrid, moving between
+ * cardinal neighbours. Implementations keep scratch buffers between searches, so an instance
+ * must only be used by one thread at a time.
+ */
+public interface PathPlanner {
+    /**
+     * @param destination Goal coordinate
+     * @return Path to destination, excluding start
+     * @throws IllegalArgumentException If destination cannot be reached from start
+     */
+    LinkedList<Coord> findPath(Coord start, Coord destination, KnowledgeGrid world);
+
+    /**
+     * @return Number of nodes taken off the open set by the most recent search
+     */
+    int getExpansions();
+}
@@ -0,0 +1,42 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+
+import java.util.LinkedList;
+import java.util.function.Supplier;
+
+public enum PathPlannerType {
+    ASTAR(AStarPathing::new),
+    JUMP_POINT(JumpPointPathing::new);
+
+    private final Supplier<PathPlanner> factory;
+    private final ThreadLocal<PathPlanner> planners;
+
+    PathPlannerType(Supplier<PathPlanner> factory) {
+        this.factory = factory;
+        this.planners = ThreadLocal.withInitial(factory);
+    }
+
+    /**
+     * @return A new planner of this type with its own search buffers
+     */
+    public PathPlanner create() {
+        return factory.get();
+    }
+
+    /**
+     * Path from start to destination, reusing this thread's planner of this type
+     * @return Path to destination, excluding start
+     */
+    public LinkedList<Coord> calculatePath(Coord start, Coord destination, KnowledgeGrid world) {
+        return planners.get().findPath(start, destination, world);
+    }
+
+    /**
+     * @return Expansions of this thread's most recent search through calculatePath
+     */
+    public int getExpansions() {
+        return planners.get().getExpansions();
+    }
+}
@@ -0,0 +1,146 @@
+package com.jchevertonwynne.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.StringJoiner;
+
+import static java.lang.String.format;
+
+/**
+ * Writes out what a TickProfiler records. Every interval ticks a block of CSV rows is appended,
+ * covering only the ticks since the block before, so a run of slow ticks shows up against the
+ * phase it was spent in. Once the run is over the totals for the whole run are written as JSON
+ * and logged.
+ * <p>
+ * Phase rows are in nanoseconds. Counter rows only fill in the count column.
+ */
+public class ProfileExporter implements Closeable {
+    public static final String CSV_HEADER = "tick,kind,name,count,mean,p50,p90,p99,max";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileExporter.class);
+
+    private final TickProfiler profiler;
+    private final Path summaryFile;
+    private final int interval;
+    private final PrintWriter snapshots;
+    private TickProfiler.Snapshot previous;
+    private int tick;
+    private boolean closed;
+
+    /**
+     * @param snapshotFile CSV file for the periodic snapshots, replaced if it exists
+     * @param summaryFile JSON file for the totals at the end of the run, replaced if it exists
+     * @param interval Ticks between snapshots
+     */
+    public ProfileExporter(TickProfiler profiler, Path snapshotFile, Path summaryFile, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Profile interval must be at least 1");
+        }
+        this.profiler = profiler;
+        this.summaryFile = summaryFile;
+        this.interval = interval;
+        try {
+            snapshots = new PrintWriter(Files.newBufferedWriter(snapshotFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create profile " + snapshotFile, e);
+        }
+        snapshots.println(CSV_HEADER);
+        previous = profiler.snapshot();
+    }
+
+    /**
+     * Note the end of a tick, writing a snapshot if one is due
+     */
+    public void tickFinished() {
+        tick++;
+        if (tick % interval == 0) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Write any ticks not yet in a snapshot, then the summary of the whole run
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (tick % interval != 0) {
+            writeSnapshot();
+        }
+        snapshots.close();
+
+        String summary = summary(profiler.snapshot());
+        try {
+            Files.writeString(summaryFile, summary);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write profile summary " + summaryFile, e);
+        }
+        logger.info("Profile over {} ticks: {}", tick, summary);
+    }
+
+    private void writeSnapshot() {
+        TickProfiler.Snapshot current = profiler.snapshot();
+        TickProfiler.Snapshot since = current.since(previous);
+        previous = current;
+        for (TickProfiler.Phase phase : TickProfiler.Phase.values()) {
+            snapshots.println(histogramRow("phase", phase.name(), since.get(phase)));
+        }
+        for (TickProfiler.Size size : TickProfiler.Size.values()) {
+            snapshots.println(histogramRow("size", size.name(), since.get(size)));
+        }
+        for (TickProfiler.Counter counter : TickProfiler.Counter.values()) {
+            snapshots.println(format("%d,counter,%s,%d,,,,,", tick, counter.name(), since.get(counter)));
+        }
+        snapshots.flush();
+    }
+
+    private String histogramRow(String kind, String name, Histogram.Snapshot histogram) {
+        return format("%d,%s,%s,%d,%.1f,%d,%d,%d,%d",
+                tick,
+                kind,
+                name,
+                histogram.getCount(),
+                histogram.getMean(),
+                histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99),
+                histogram.getMax()
+        );
+    }
+
+    String summary(TickProfiler.Snapshot total) {
+        StringJoiner phases = new StringJoiner(",", "{", "}");
+        for (TickProfiler.Phase phase : TickProfiler.Phase.values()) {
+            phases.add(format("\"%s\":%s", phase.name(), histogramJson(total.get(phase))));
+        }
+        StringJoiner sizes = new StringJoiner(",", "{", "}");
+        for (TickProfiler.Size size : TickProfiler.Size.values()) {
+            sizes.add(format("\"%s\":%s", size.name(), histogramJson(total.get(size))));
+        }
+        StringJoiner counters = new StringJoiner(",", "{", "}");
+        for (TickProfiler.Counter counter : TickProfiler.Counter.values()) {
+            counters.add(format("\"%s\":%d", counter.name(), total.get(counter)));
+        }
+        return format("{\"ticks\":%d,\"phases\":%s,\"sizes\":%s,\"counters\":%s}", tick, phases, sizes, counters);
+    }
+
+    private static String histogramJson(Histogram.Snapshot histogram) {
+        return format("{\"count\":%d,\"sum\":%d,\"mean\":%.1f,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"max\":%d}",
+                histogram.getCount(),
+                histogram.getSum(),
+                histogram.getMean(),
+                histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99),
+                histogram.getMax()
+        );
+    }
+}
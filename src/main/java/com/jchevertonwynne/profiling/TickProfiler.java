@@ -0,0 +1,172 @@
+package com.jchevertonwynne.profiling;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent in each phase of a tick, counts of the work done, and the sizes of the queues
+ * worked through, all kept for the whole run. Agent phases are recorded from the agent threads
+ * and nest inside the simulator phases that run them. A disabled profiler records nothing and
+ * never reads the clock.
+ */
+public class TickProfiler {
+    public enum Phase {
+        /**
+         * The whole of Simulator.progress
+         */
+        TICK,
+        /**
+         * Every round of sharing between neighbours, mediation included
+         */
+        SHARING,
+        /**
+         * Mediation between pairs and checks for drops, within each round of sharing
+         */
+        MEDIATION,
+        /**
+         * Every round of agent turns
+         */
+        TURNS,
+        SCAN,
+        DISTANCES,
+        MERGE,
+        BOUNDARY_SEARCH,
+        CHOOSE_MOVE,
+        MOVES,
+        DISPLAY
+    }
+
+    public enum Counter {
+        BOUNDARY_TILES_VISITED,
+        /**
+         * Steps in paths home, however they were planned
+         */
+        RETURN_PATH_STEPS,
+        /**
+         * Nodes expanded by the grid planner behind hierarchical paths home, for short hops and
+         * for routes the cluster entrances did not connect
+         */
+        PLANNER_EXPANSIONS,
+        TILES_SHARED,
+        BLACKLISTED,
+        REPATHS
+    }
+
+    public enum Size {
+        /**
+         * Widest level of each boundary search
+         */
+        BOUNDARY_LEVEL,
+        FRONTIER,
+        /**
+         * Tiles an agent queued for merging into shared knowledge each turn
+         */
+        LEARNED_QUEUE
+    }
+
+    private static final TickProfiler DISABLED = new TickProfiler(false);
+
+    private final boolean enabled;
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private final Map<Size, Histogram> sizes = new EnumMap<>(Size.class);
+
+    public TickProfiler() {
+        this(true);
+    }
+
+    private TickProfiler(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) return;
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Histogram());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+        for (Size size : Size.values()) {
+            sizes.put(size, new Histogram());
+        }
+    }
+
+    /**
+     * @return A profiler that ignores everything recorded
+     */
+    public static TickProfiler disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Time to pass to stop when the phase ends
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void stop(Phase phase, long started) {
+        if (enabled) phases.get(phase).record(System.nanoTime() - started);
+    }
+
+    public void count(Counter counter, long amount) {
+        if (enabled) counters.get(counter).add(amount);
+    }
+
+    public void size(Size size, long value) {
+        if (enabled) sizes.get(size).record(value);
+    }
+
+    /**
+     * @return Every phase, counter and size recorded so far, which is nothing if disabled
+     */
+    public Snapshot snapshot() {
+        Map<Phase, Histogram.Snapshot> phaseSnapshots = new EnumMap<>(Phase.class);
+        phases.forEach((phase, histogram) -> phaseSnapshots.put(phase, histogram.snapshot()));
+        Map<Counter, Long> counterValues = new EnumMap<>(Counter.class);
+        counters.forEach((counter, adder) -> counterValues.put(counter, adder.sum()));
+        Map<Size, Histogram.Snapshot> sizeSnapshots = new EnumMap<>(Size.class);
+        sizes.forEach((size, histogram) -> sizeSnapshots.put(size, histogram.snapshot()));
+        return new Snapshot(phaseSnapshots, counterValues, sizeSnapshots);
+    }
+
+    public static class Snapshot {
+        private final Map<Phase, Histogram.Snapshot> phases;
+        private final Map<Counter, Long> counters;
+        private final Map<Size, Histogram.Snapshot> sizes;
+
+        private Snapshot(Map<Phase, Histogram.Snapshot> phases, Map<Counter, Long> counters, Map<Size, Histogram.Snapshot> sizes) {
+            this.phases = phases;
+            this.counters = counters;
+            this.sizes = sizes;
+        }
+
+        /**
+         * @return Everything recorded after earlier was taken and up to this snapshot
+         */
+        public Snapshot since(Snapshot earlier) {
+            Map<Phase, Histogram.Snapshot> phaseDifferences = new EnumMap<>(Phase.class);
+            phases.forEach((phase, histogram) -> phaseDifferences.put(phase, histogram.since(earlier.phases.get(phase))));
+            Map<Counter, Long> counterDifferences = new EnumMap<>(Counter.class);
+            counters.forEach((counter, value) -> counterDifferences.put(counter, value - earlier.counters.get(counter)));
+            Map<Size, Histogram.Snapshot> sizeDifferences = new EnumMap<>(Size.class);
+            sizes.forEach((size, histogram) -> sizeDifferences.put(size, histogram.since(earlier.sizes.get(size))));
+            return new Snapshot(phaseDifferences, counterDifferences, sizeDifferences);
+        }
+
+        public Histogram.Snapshot get(Phase phase) {
+            return phases.get(phase);
+        }
+
+        public long get(Counter counter) {
+            return counters.get(counter);
+        }
+
+        public Histogram.Snapshot get(Size size) {
+            return sizes.get(size);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.jchevertonwynne.simulation;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Number of agents aware of each tile, indexed by y * width + x. Agents count themselves in as
+ * they learn tiles, from whichever thread they are running on, so the display can read the
+ * counts directly instead of merging every agent's knowledge each frame.
+ */
+class KnownByCounts {
+    private final int width;
+    private final AtomicIntegerArray counts;
+
+    KnownByCounts(int width, int height) {
+        this.width = width;
+        this.counts = new AtomicIntegerArray(width * height);
+    }
+
+    void learned(int x, int y) {
+        counts.incrementAndGet(y * width + x);
+    }
+
+    void learned(int x, int y, int agents) {
+        counts.addAndGet(y * width + x, agents);
+    }
+
+    int get(int x, int y) {
+        return counts.get(y * width + x);
+    }
+}
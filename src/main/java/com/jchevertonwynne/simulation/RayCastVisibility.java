@@ -0,0 +1,35 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.KnowledgeGrid.TileConsumer;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.RayTable;
+
+/**
+ * Walks one ray to every tile on the edge of the sight circle. A ray reports the walls it meets
+ * and stops at the first open tile behind them. Tiles near the centre lie on many rays and are
+ * reported once per ray.
+ */
+public class RayCastVisibility implements VisibilityStrategy {
+    @Override
+    public void scan(Terrain world, int centreX, int centreY, int radius, TileConsumer visitor) {
+        RayTable rays = RayTable.forRadius(radius);
+
+        for (int ray = 0; ray < rays.getRayCount(); ray++) {
+            boolean edgeSeen = false;
+            for (int step = rays.rayStart(ray); step < rays.rayEnd(ray); step++) {
+                int x = centreX + rays.dx(step);
+                int y = centreY + rays.dy(step);
+                if (!world.inBounds(x, y)) continue;
+
+                boolean pathable = world.isPathable(x, y);
+                if (!pathable) {
+                    edgeSeen = true;
+                }
+                else if (edgeSeen) {
+                    break;
+                }
+                visitor.accept(x, y, pathable);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.jchevertonwynne.simulation;
+
+/**
+ * How agents with nothing left to explore find their way back to the start
+ */
+public enum ReturnPathing {
+    /**
+     * Walk down the distance field kept from the start, always a shortest path
+     */
+    DISTANCE_FIELD,
+    /**
+     * Plan over cluster entrances, with short hops left to the configured path planner. Paths
+     * may be slightly longer than the shortest.
+     */
+    HIERARCHICAL,
+}
@@ -2,54 +2,78 @@ package com.jchevertonwynne.simulation;
 
 import com.jchevertonwynne.structures.Coord;
 import com.jchevertonwynne.structures.Drop;
-import com.jchevertonwynne.structures.TileStatus;
+import com.jchevertonwynne.structures.KnowledgeGrid.TileConsumer;
+import com.jchevertonwynne.structures.SpatialIndex;
+import com.jchevertonwynne.structures.Terrain;
 import com.jchevertonwynne.utils.CircleOperations;
+import com.jchevertonwynne.utils.SimulationConfig;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
-import static com.jchevertonwynne.utils.CircleOperations.generateCircleRays;
-import static com.jchevertonwynne.utils.Common.BROADCAST_RADIUS;
-import static com.jchevertonwynne.utils.Common.GLOBAL_KNOWLEDGE;
-import static com.jchevertonwynne.utils.Common.SIGHT_RADIUS;
-import static java.util.Collections.unmodifiableSet;
+import static java.util.Collections.unmodifiableList;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
 
 public class Scanner {
-    private final Boolean[][] world;
+    private final Terrain world;
     private final SwarmAgent agent;
-    private final Set<SwarmAgent> otherAgents;
-    private final List<Drop> drops;
+    private final List<SwarmAgent> otherAgents;
+    private final SpatialIndex<SwarmAgent> agentIndex;
+    private final SpatialIndex<Drop> dropIndex;
+    private final List<Drop> placedDrops = new ArrayList<>();
+    private final SimulationConfig config;
+    private final VisibilityStrategy visibility;
+    private final TileConsumer recordTile;
 
-    public Scanner(Boolean[][] world, SwarmAgent agent, Set<SwarmAgent> otherAgents, List<Drop> drops) {
+    public Scanner(Terrain world, SwarmAgent agent, List<SwarmAgent> otherAgents, SpatialIndex<SwarmAgent> agentIndex, SpatialIndex<Drop> dropIndex, SimulationConfig config) {
         this.world = world;
         this.agent = agent;
-        this.otherAgents = unmodifiableSet(otherAgents);
-        this.drops = drops;
+        this.otherAgents = unmodifiableList(otherAgents);
+        this.agentIndex = agentIndex;
+        this.dropIndex = dropIndex;
+        this.config = config;
+        this.visibility = config.getVisibilityType().getStrategy();
+        this.recordTile = (x, y, pathable) -> {
+            if (!agent.getWorld().isKnown(x, y)) {
+                agent.setWorldStatus(x, y, pathable);
+            }
+        };
     }
 
-    public Set<SwarmAgent> getOtherLocalAgents() {
-        if (GLOBAL_KNOWLEDGE) {
+    /**
+     * @return Agents this agent can communicate with, in agent order
+     */
+    public List<SwarmAgent> getOtherLocalAgents() {
+        if (config.isGlobalKnowledge()) {
             return otherAgents;
         }
         else {
-            return otherAgents.stream()
-                    .filter(otherAgent -> otherAgent.distanceFrom(agent) < BROADCAST_RADIUS)
+            return agentIndex.candidatesNear(agent.getPosition(), config.getBroadcastRadius()).stream()
+                    .filter(otherAgent -> !otherAgent.equals(agent))
+                    .filter(otherAgent -> otherAgent.distanceFrom(agent) < config.getBroadcastRadius())
                     .filter(this::inSight)
-                    .collect(toSet());
+                    .collect(toList());
         }
     }
 
+    /**
+     * Place a drop at the agent's position. Other agents only see it once indexed.
+     */
     public void putDrop() {
-        Drop drop = new Drop(agent.getPosition(), agent);
-        drops.add(drop);
+        placedDrops.add(new Drop(agent.getPosition(), agent));
+    }
+
+    /**
+     * Move drops placed since the last call into the shared index
+     */
+    void indexPlacedDrops() {
+        placedDrops.forEach(drop -> dropIndex.add(drop.getCoord(), drop));
+        placedDrops.clear();
     }
 
     public List<Drop> getLocalDrops() {
-        return drops.stream()
-                .filter(drop -> agent.distanceFrom(drop.getCoord()) <= SIGHT_RADIUS)
+        return dropIndex.candidatesNear(agent.getPosition(), config.getSightRadius()).stream()
+                .filter(drop -> agent.distanceFrom(drop.getCoord()) <= config.getSightRadius())
                 .filter(drop -> !drop.getAgent().equals(agent))
                 .filter(this::inSight)
                 .collect(toList());
@@ -64,39 +88,15 @@ public class Scanner {
     }
 
     private boolean inSight(Coord coord) {
-        Map<Coord, Boolean> world = agent.getWorld();
-        List<Coord> pathToCoord = CircleOperations.calculateRay(agent.getPosition(), coord);
-        return pathToCoord.stream().allMatch(c -> world.getOrDefault(c, false));
+        Coord position = agent.getPosition();
+        return CircleOperations.isRayPathable(agent.getWorld(), position.getX(), position.getY(), coord.getX(), coord.getY());
     }
 
     /**
      * Scan the area around an agent, cutting off at walls
      */
     public void scan() {
-        List<List<Coord>> rays = generateCircleRays(agent.getPosition(), SIGHT_RADIUS);
-        Map<Coord, Boolean> agentWorld = agent.getWorld();
-
-        for (List<Coord> ray : rays) {
-            boolean edgeSeen = false;
-            for (Coord coord : ray) {
-                boolean pathable;
-
-                try {
-                    pathable = world[coord.getX()][coord.getY()];
-                    if (!pathable) {
-                        edgeSeen = true;
-                    }
-                    else if (edgeSeen) {
-                        break;
-                    }
-
-                    if (!agentWorld.containsKey(coord)) {
-                        agent.setWorldStatus(new TileStatus(coord, pathable));
-                    }
-                }
-                catch (IndexOutOfBoundsException ignored) {
-                }
-            }
-        }
+        Coord position = agent.getPosition();
+        visibility.scan(world, position.getX(), position.getY(), config.getSightRadius(), recordTile);
     }
 }
@@ -1,25 +1,52 @@
 package com.jchevertonwynne.simulation;
 
 import com.jchevertonwynne.structures.Drop;
+import com.jchevertonwynne.structures.SpatialIndex;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.SimulationConfig;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.toList;
 
 public class ScannerFactory {
-    private final Boolean[][] world;
-    private final Set<SwarmAgent> agents;
-    private final List<Drop> drops = new LinkedList<>();
+    private final Terrain world;
+    private final List<SwarmAgent> agents;
+    private final List<Scanner> scanners = new ArrayList<>();
+    private final SpatialIndex<SwarmAgent> agentIndex;
+    private final SpatialIndex<Drop> dropIndex;
+    private final SimulationConfig config;
 
-    public ScannerFactory(Boolean[][] world, Set<SwarmAgent> agents) {
+    public ScannerFactory(Terrain world, List<SwarmAgent> agents, SimulationConfig config) {
         this.world = world;
         this.agents = agents;
+        this.config = config;
+        this.agentIndex = new SpatialIndex<>(world.getWidth(), world.getHeight(), Math.max(1, config.getBroadcastRadius()));
+        this.dropIndex = new SpatialIndex<>(world.getWidth(), world.getHeight(), Math.max(1, config.getSightRadius()));
+        indexAgents();
     }
 
     public Scanner instance(SwarmAgent agent) {
-        Set<SwarmAgent> otherAgents = agents.stream().filter(a -> !a.equals(agent)).collect(toSet());
-        return new Scanner(world, agent, otherAgents, drops);
+        List<SwarmAgent> otherAgents = agents.stream().filter(a -> !a.equals(agent)).collect(toList());
+        Scanner scanner = new Scanner(world, agent, otherAgents, agentIndex, dropIndex, config);
+        scanners.add(scanner);
+        return scanner;
+    }
+
+    /**
+     * Re-index every agent at its current position, to be called whenever agents have moved
+     */
+    public void indexAgents() {
+        agentIndex.clear();
+        agents.forEach(agent -> agentIndex.add(agent.getPosition(), agent));
+    }
+
+    /**
+     * Index the drops every scanner placed during the last turns. Scanners are visited in the
+     * order they were created so drops are indexed in the same order however turns were run.
+     */
+    public void indexPlacedDrops() {
+        scanners.forEach(Scanner::indexPlacedDrops);
     }
 }
@@ -0,0 +1,78 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.KnowledgeGrid.TileConsumer;
+import com.jchevertonwynne.structures.Terrain;
+
+/**
+ * Recursive shadow casting over the eight octants of the sight disc. Walls are visible and
+ * block everything behind them. Each tile of the disc is visited at most once: octants share
+ * their axis and diagonal edges, so odd octants leave their edges to the even ones.
+ * Tiles off the edge of the world are treated as walls and never reported.
+ */
+public class ShadowCastVisibility implements VisibilityStrategy {
+    private static final int[][] OCTANTS = {
+            {1, 0, 0, 1},
+            {0, 1, 1, 0},
+            {0, -1, 1, 0},
+            {-1, 0, 0, 1},
+            {-1, 0, 0, -1},
+            {0, -1, -1, 0},
+            {0, 1, -1, 0},
+            {1, 0, 0, -1},
+    };
+
+    @Override
+    public void scan(Terrain world, int centreX, int centreY, int radius, TileConsumer visitor) {
+        if (!world.inBounds(centreX, centreY)) return;
+        visitor.accept(centreX, centreY, world.isPathable(centreX, centreY));
+
+        // matches the circle edge used by CircleOperations
+        double limit = (radius + 0.5) * (radius + 0.5);
+        for (int octant = 0; octant < OCTANTS.length; octant++) {
+            int[] m = OCTANTS[octant];
+            castLight(world, centreX, centreY, 1, 1.0, 0.0, radius, limit, m[0], m[1], m[2], m[3], octant % 2 == 1, visitor);
+        }
+    }
+
+    private void castLight(Terrain world, int centreX, int centreY, int row, double startSlope, double endSlope,
+                           int radius, double limit, int xx, int xy, int yx, int yy, boolean skipEdges, TileConsumer visitor) {
+        if (startSlope < endSlope) return;
+
+        double nextStartSlope = startSlope;
+        for (int distance = row; distance <= radius; distance++) {
+            boolean blocked = false;
+            int dy = -distance;
+            for (int dx = -distance; dx <= 0; dx++) {
+                double leftSlope = (dx - 0.5) / (dy + 0.5);
+                double rightSlope = (dx + 0.5) / (dy - 0.5);
+                if (startSlope < rightSlope) continue;
+                if (endSlope > leftSlope) break;
+
+                int x = centreX + dx * xx + dy * xy;
+                int y = centreY + dx * yx + dy * yy;
+                boolean opaque = !world.isPathable(x, y);
+
+                boolean onEdge = dx == 0 || dx == dy;
+                if (dx * dx + dy * dy <= limit && world.inBounds(x, y) && !(skipEdges && onEdge)) {
+                    visitor.accept(x, y, !opaque);
+                }
+
+                if (blocked) {
+                    if (opaque) {
+                        nextStartSlope = rightSlope;
+                    }
+                    else {
+                        blocked = false;
+                        startSlope = nextStartSlope;
+                    }
+                }
+                else if (opaque && distance < radius) {
+                    blocked = true;
+                    castLight(world, centreX, centreY, distance + 1, startSlope, leftSlope, radius, limit, xx, xy, yx, yy, skipEdges, visitor);
+                    nextStartSlope = rightSlope;
+                }
+            }
+            if (blocked) break;
+        }
+    }
+}
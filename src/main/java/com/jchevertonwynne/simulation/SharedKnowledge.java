@@ -0,0 +1,94 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.pathing.DistanceField;
+import com.jchevertonwynne.pathing.HierarchicalPathing;
+import com.jchevertonwynne.structures.FrontierSet;
+import com.jchevertonwynne.structures.SharedOccupancyGrid;
+import com.jchevertonwynne.utils.SimulationConfig;
+
+import java.util.List;
+
+/**
+ * The single copy of world knowledge every agent works from when knowledge is global, along
+ * with everything derived from it. Agents scan straight into the grid from their own threads,
+ * each queueing the tiles it was first to learn. The derived structures are only brought up to
+ * date between the scanning and deciding phases of a turn, when no agent is running.
+ */
+class SharedKnowledge {
+    private final SharedOccupancyGrid world;
+    private final DistanceField distanceFromStart;
+    private final FrontierSet frontier;
+    /**
+     * Null unless agents return along hierarchical paths
+     */
+    private final HierarchicalPathing pathing;
+    private final WallRegions walls;
+    private final SimulationConfig config;
+    private KnownByCounts knownBy;
+    private int agentCount;
+
+    SharedKnowledge(int width, int height, SimulationConfig config) {
+        this.config = config;
+        world = new SharedOccupancyGrid(width, height);
+        world.set(config.getStartPosition(), true);
+        distanceFromStart = new DistanceField(world, config.getStartPosition());
+        frontier = new FrontierSet(world);
+        pathing = config.getReturnPathing() == ReturnPathing.HIERARCHICAL
+                ? new HierarchicalPathing(world, config.getPathPlanner())
+                : null;
+        walls = new WallRegions(width, height, config.getSightRadius());
+    }
+
+    SharedOccupancyGrid getWorld() {
+        return world;
+    }
+
+    DistanceField getDistances() {
+        return distanceFromStart;
+    }
+
+    FrontierSet getFrontier() {
+        return frontier;
+    }
+
+    HierarchicalPathing getPathing() {
+        return pathing;
+    }
+
+    WallRegions getWalls() {
+        return walls;
+    }
+
+    /**
+     * Count every tile learned from here on as known by all agents
+     */
+    void trackKnowledge(KnownByCounts knownBy, int agentCount) {
+        this.knownBy = knownBy;
+        this.agentCount = agentCount;
+    }
+
+    /**
+     * Take in the tiles each agent queued while scanning, in agent order, then relax distances
+     * and rebuild changed path clusters ready for agents to read
+     */
+    void merge(List<SwarmAgent> agents) {
+        for (SwarmAgent agent : agents) {
+            agent.drainLearned(this::learned);
+        }
+        if (pathing != null) pathing.refresh();
+        distanceFromStart.update();
+        if (config.isVerifyDistances()) {
+            distanceFromStart.verify();
+        }
+    }
+
+    private void learned(int x, int y, boolean pathable) {
+        if (pathable) {
+            distanceFromStart.tileAdded(x, y);
+            if (pathing != null) pathing.tileAdded(x, y);
+        }
+        frontier.tileLearned(x, y);
+        if (!pathable) walls.wallLearned(x, y);
+        if (knownBy != null) knownBy.learned(x, y, agentCount);
+    }
+}
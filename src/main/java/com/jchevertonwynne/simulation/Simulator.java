@@ -1,31 +1,47 @@
 package com.jchevertonwynne.simulation;
 
 import com.jchevertonwynne.display.Displayable;
+import com.jchevertonwynne.pathing.DistanceField;
 import com.jchevertonwynne.pathing.PathMediator;
+import com.jchevertonwynne.profiling.ProfileExporter;
+import com.jchevertonwynne.profiling.TickProfiler;
 import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.SimulationConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
-import static com.jchevertonwynne.utils.Common.DISTANCE_DISPLAY;
-import static com.jchevertonwynne.utils.Common.START_POSITION;
 import static java.lang.Math.min;
 import static java.lang.String.format;
+import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
 
 public class Simulator implements Displayable {
@@ -40,16 +56,30 @@ public class Simulator implements Displayable {
 
     private int imagesTaken;
 
-    private static class AgentHandlerThread implements Runnable {
-        private final SwarmAgent agent;
+    private static class StepHandlerThread<T> implements Callable<Void> {
+        private final T item;
+        private final Consumer<T> step;
 
-        public AgentHandlerThread(SwarmAgent agent) {
-            this.agent = agent;
+        public StepHandlerThread(T item, Consumer<T> step) {
+            this.item = item;
+            this.step = step;
         }
 
         @Override
-        public void run() {
-            agent.processTurn();
+        public Void call() {
+            step.accept(item);
+            return null;
+        }
+    }
+
+    private static class AgentThreadFactory implements ThreadFactory {
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "swarm-agent-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 
@@ -70,93 +100,109 @@ public class Simulator implements Displayable {
         }
     }
 
+    private final SimulationConfig config;
     private final ScannerFactory scannerFactory;
-    private final Set<SwarmAgent> agents = new HashSet<>();
+    private final int worldWidth;
+    private final int worldHeight;
+    private final List<SwarmAgent> agents = new ArrayList<>();
     private final Map<SwarmAgent, Integer> scans = new HashMap<>();
+    private final ExecutorService threadManager;
+    private final long seed;
+    private final Random random;
+    private final TraceRecorder trace;
+    private final Terrain world;
+    private final KnownByCounts knownBy;
+    private final SharedKnowledge sharedKnowledge;
+    private final TickProfiler profiler;
+    private final ProfileExporter profileExporter;
 
-    public Simulator(int agentCount, Boolean[][] world) {
-        scannerFactory = new ScannerFactory(world, agents);
+    public Simulator(Terrain world, SimulationConfig config) {
+        if (config.getSimulationThreads() < 1) {
+            throw new IllegalArgumentException("Simulation threads must be at least 1");
+        }
+        this.config = config;
+        seed = config.getSeed() == null ? new Random().nextLong() : config.getSeed();
+        random = new Random(seed);
+        logger.info("Simulation seed {}", seed);
+        scannerFactory = new ScannerFactory(world, agents, config);
+        this.world = world;
+        worldWidth = world.getWidth();
+        worldHeight = world.getHeight();
+        knownBy = new KnownByCounts(worldWidth, worldHeight);
+        sharedKnowledge = config.isGlobalKnowledge() ? new SharedKnowledge(worldWidth, worldHeight, config) : null;
+        profiler = config.getProfileFile() == null ? TickProfiler.disabled() : new TickProfiler();
 
-        for (int i = 0; i < agentCount; i++) {
-            boolean added;
+        for (int i = 0; i < config.getAgentCount(); i++) {
+            SwarmAgent agent;
             do {
-                added = agents.add(randomAgent());
-            } while (!added);
+                agent = randomAgent(i);
+            } while (agents.contains(agent));
+            agents.add(agent);
         }
 
         agents.forEach(agent -> {
             agent.initialiseScanner(scannerFactory);
+            agent.trackKnowledge(knownBy);
+            agent.profileWith(profiler);
             scans.put(agent, 0);
         });
+        if (sharedKnowledge != null) sharedKnowledge.trackKnowledge(knownBy, agents.size());
+        threadManager = Executors.newFixedThreadPool(config.getSimulationThreads(), new AgentThreadFactory());
+        trace = config.getTraceFile() == null ? null : new TraceRecorder(config, seed, worldWidth, worldHeight, agents);
+        profileExporter = config.getProfileFile() == null ? null : new ProfileExporter(
+                profiler,
+                Paths.get(config.getProfileFile() + ".csv"),
+                Paths.get(config.getProfileFile() + ".json"),
+                config.getProfileInterval()
+        );
     }
 
     /**
      * Create randomly coloured SwarmAgent
+     * @param id Position of the agent in agent order
      * @return SwarmAgent
      */
-    private SwarmAgent randomAgent() {
-        Random random = new Random();
+    private SwarmAgent randomAgent(int id) {
         Color agentColor = new Color(
                 random.nextInt(256),
                 random.nextInt(256),
                 random.nextInt(256)
         );
-        return new SwarmAgent(START_POSITION, agentColor);
-    }
-
-    private Map<Coord, Boolean> combinedDiscovery() {
-        Map<Coord, Boolean> result = new HashMap<>();
-        agents.forEach(agent -> result.putAll(agent.getWorld()));
-        return result;
-    }
-
-    private Set<Coord> getSemiCommon() {
-        Map<Coord, Integer> seenCount = new HashMap<>();
-        Set<Coord> result = new HashSet<>();
-        List<Map<Coord, Boolean>> allWorlds = agents.stream().map(SwarmAgent::getWorld).collect(toList());
-        allWorlds.forEach(world -> world.forEach((k, v) -> {
-            seenCount.putIfAbsent(k, 0);
-            seenCount.computeIfPresent(k, (coord, count) -> count + 1);
-        }));
-        seenCount.forEach((coord, count) -> {
-            if (count > 1) result.add(coord);
-        });
-        return result;
+        return sharedKnowledge == null
+                ? new SwarmAgent(id, config.getStartPosition(), agentColor, worldWidth, worldHeight, config)
+                : new SwarmAgent(id, config.getStartPosition(), agentColor, sharedKnowledge, config);
     }
 
-    private Set<Coord> getCommon(Map<Coord, Boolean> combined) {
-        List<Map<Coord, Boolean>> allWorlds = agents.stream()
-                .map(SwarmAgent::getWorld)
-                .collect(toList());
-        Set<Coord> result = new HashSet<>();
-        combined.forEach((coord, pathable) -> {
-            if (allWorlds.stream().allMatch(world -> world.containsKey(coord))) {
-                result.add(coord);
-            }
-        });
-        return result;
+    /**
+     * @return Shortest distance from start to a tile known by any agent
+     */
+    private int shortestDistanceFromStart(int x, int y) {
+        int shortest = DistanceField.UNREACHABLE;
+        for (SwarmAgent agent : agents) {
+            shortest = min(shortest, agent.getDistances().get(x, y));
+        }
+        return shortest;
     }
 
     /**
-     * Progress all agents and check for any new scans
-     * @return New scan status
+     * Progress all agents and check for any new scans. Once every agent has finished nothing more
+     * happens, and the owner is left to close the simulator.
+     * @return New scan status, always true once complete
      */
     public boolean progress() {
+        if (complete()) return true;
+        long tickStarted = profiler.start();
         PathMediator pathMediator = new PathMediator();
+        scannerFactory.indexAgents();
         boolean repathed;
         do {
-            repathed = false;
-            for (SwarmAgent agent : agents) {
-                repathed |= agent.shareWithNeighbours(pathMediator);
-            }
-            ExecutorService threadManager = Executors.newCachedThreadPool();
-            agents.forEach(a -> threadManager.execute(new AgentHandlerThread(a)));
-            threadManager.shutdown();
-            try {
-                threadManager.awaitTermination(5, TimeUnit.MINUTES);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            long started = profiler.start();
+            repathed = shareWithNeighbours(pathMediator);
+            profiler.stop(TickProfiler.Phase.SHARING, started);
+            started = profiler.start();
+            processTurns();
+            profiler.stop(TickProfiler.Phase.TURNS, started);
+            scannerFactory.indexPlacedDrops();
         } while (repathed && !complete());
 
         boolean newlyScanned = false;
@@ -167,59 +213,235 @@ public class Simulator implements Displayable {
             }
         }
 
+        if (trace != null) trace.recordDecisions(agents);
+        long started = profiler.start();
         agents.forEach(SwarmAgent::applyNextMove);
+        profiler.stop(TickProfiler.Phase.MOVES, started);
+        if (trace != null) trace.recordMoves(agents);
+        profiler.stop(TickProfiler.Phase.TICK, tickStarted);
+        if (profileExporter != null) profileExporter.tickFinished();
         return newlyScanned || complete();
     }
 
+    /**
+     * One round of sharing between every agent still exploring and the agents near it, run on the
+     * thread pool. Neighbours are all found first, from what each agent knows at the start of the
+     * round. Each agent then takes in the discoveries of every agent it is neighbours with, which
+     * only changes the agent receiving. Mediation only changes the two agents mediated, so pairs
+     * are put into batches without an agent in common, run one batch after another. Last of all
+     * each agent checks for drops near its goal.
+     * @return Whether any agent has to choose a new move
+     */
+    private boolean shareWithNeighbours(PathMediator mediator) {
+        List<SwarmAgent> sharing = agents.stream()
+                .filter(SwarmAgent::isSharing)
+                .collect(toList());
+        List<List<SwarmAgent>> neighbours = new ArrayList<>(Collections.nCopies(agents.size(), Collections.emptyList()));
+        runInParallel(sharing, agent -> neighbours.set(agent.getId(), agent.findNeighbours()));
+
+        if (sharedKnowledge == null) {
+            List<Set<SwarmAgent>> peers = new ArrayList<>();
+            agents.forEach(agent -> peers.add(new TreeSet<>(comparingInt(SwarmAgent::getId))));
+            for (SwarmAgent agent : sharing) {
+                for (SwarmAgent neighbour : neighbours.get(agent.getId())) {
+                    peers.get(agent.getId()).add(neighbour);
+                    peers.get(neighbour.getId()).add(agent);
+                }
+            }
+            runInParallel(agents, agent -> peers.get(agent.getId()).forEach(agent::receiveDiscoveries));
+        }
+
+        long started = profiler.start();
+        AtomicBoolean repathed = new AtomicBoolean();
+        for (List<SwarmAgent[]> batch : mediationBatches(sharing, neighbours)) {
+            runInParallel(batch, pair -> {
+                if (pair[0].isHeadingSameWay(pair[1]) && mediator.mediate(pair[0], pair[1])) {
+                    repathed.set(true);
+                    profiler.count(TickProfiler.Counter.REPATHS, 1);
+                }
+            });
+        }
+        runInParallel(sharing, agent -> {
+            if (agent.checkDrops()) {
+                repathed.set(true);
+                profiler.count(TickProfiler.Counter.REPATHS, 1);
+            }
+        });
+        profiler.stop(TickProfiler.Phase.MEDIATION, started);
+        return repathed.get();
+    }
+
+    /**
+     * Every pair of an exploring agent with a goal and one of its neighbours, each pair once and
+     * exploring agent first, split into batches in which no agent appears twice. Each pair goes in
+     * the batch after the last one either of its agents is in, so the pairs an agent is part of
+     * are still mediated in the order they were found.
+     */
+    private List<List<SwarmAgent[]>> mediationBatches(List<SwarmAgent> sharing, List<List<SwarmAgent>> neighbours) {
+        List<List<SwarmAgent[]>> batches = new ArrayList<>();
+        int[] nextBatch = new int[agents.size()];
+        Set<Long> paired = new HashSet<>();
+        for (SwarmAgent agent : sharing) {
+            if (agent.getCurrentGoal() == null) continue;
+            for (SwarmAgent neighbour : neighbours.get(agent.getId())) {
+                if (!paired.add(PathMediator.pairKey(agent.getId(), neighbour.getId()))) continue;
+                int batch = Math.max(nextBatch[agent.getId()], nextBatch[neighbour.getId()]);
+                if (batch == batches.size()) {
+                    batches.add(new ArrayList<>());
+                }
+                batches.get(batch).add(new SwarmAgent[]{agent, neighbour});
+                nextBatch[agent.getId()] = batch + 1;
+                nextBatch[neighbour.getId()] = batch + 1;
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Run every agent's turn, returning once all have finished. With shared knowledge the turn is
+     * split so that agents only ever scan into the shared grid together, and decide their moves
+     * together once every scan has been merged.
+     */
+    private void processTurns() {
+        if (sharedKnowledge == null) {
+            runInParallel(agents, SwarmAgent::processTurn);
+            return;
+        }
+
+        List<SwarmAgent> moving = agents.stream()
+                .filter(SwarmAgent::beginTurn)
+                .collect(toList());
+        runInParallel(moving.stream().filter(SwarmAgent::isScanDue).collect(toList()), SwarmAgent::scanArea);
+        long started = profiler.start();
+        sharedKnowledge.merge(agents);
+        profiler.stop(TickProfiler.Phase.MERGE, started);
+        runInParallel(moving, SwarmAgent::decideMove);
+    }
+
+    /**
+     * Run a step for each of the given agents, or pairs of agents, on the thread pool, returning
+     * once all have finished
+     */
+    private <T> void runInParallel(List<T> stepping, Consumer<T> step) {
+        List<StepHandlerThread<T>> handlers = stepping.stream()
+                .map(item -> new StepHandlerThread<>(item, step))
+                .collect(toList());
+        try {
+            for (Future<Void> turn : threadManager.invokeAll(handlers)) {
+                try {
+                    turn.get();
+                } catch (ExecutionException e) {
+                    logger.error("Agent turn failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing agent turns", e);
+        }
+    }
+
+    /**
+     * Stop the agent thread pool, waiting for any running turns to finish, and finish the trace
+     * and profile
+     */
+    public void close() {
+        if (threadManager.isShutdown()) return;
+        threadManager.shutdown();
+        try {
+            threadManager.awaitTermination(5, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (trace != null) trace.close();
+        if (profileExporter != null) profileExporter.close();
+    }
+
+    /**
+     * @return Seed driving this simulation, either configured or chosen at random
+     */
+    public long getSeed() {
+        return seed;
+    }
+
     public boolean complete() {
         return agents.stream().allMatch(SwarmAgent::isFinished);
     }
 
+    public int totalDistanceMoved() {
+        return agents.stream().mapToInt(SwarmAgent::getDistanceMoved).sum();
+    }
+
+    public int totalScans() {
+        return agents.stream().mapToInt(SwarmAgent::getScansDone).sum();
+    }
+
+    /**
+     * Colour every known tile by how many agents know it, then draw the agents. Tiles outside
+     * the image are left out, and INT_RGB and INT_ARGB images the size of the world are written
+     * to directly. Safe to call while the simulation is running, in which case the picture may be
+     * a few tiles behind.
+     */
     @Override
     public void display(BufferedImage image) {
-        Graphics graphics = image.getGraphics();
-        Map<Coord, Integer> distances = new HashMap<>();
-        if (DISTANCE_DISPLAY) {
-            for (SwarmAgent agent : agents) {
-                Map<Coord, Integer> agentDistances = agent.getDistances();
-                agentDistances.forEach((c, d) -> {
-                    int distance = distances.getOrDefault(c, Integer.MAX_VALUE);
-                    distances.put(c, min(distance, d));
-                });
-            }
-        }
+        long started = profiler.start();
+        int[] pixels = directPixels(image);
+        int agentCount = agents.size();
+        int width = min(worldWidth, image.getWidth());
+        int height = min(worldHeight, image.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int count = knownBy.get(x, y);
+                if (count == 0) continue;
 
-        Map<Coord, Boolean> coordPathableMap = combinedDiscovery();
-        Set<Coord> knownByMultiple = getSemiCommon();
-        Set<Coord> knownByAll = getCommon(coordPathableMap);
-        coordPathableMap.forEach((coord, pathable) -> {
-            int knownAreaColour;
-            if (DISTANCE_DISPLAY) {
-                if (knownByAll.contains(coord)) {
-                    knownAreaColour = pathable ? new Color(0, 255, distances.get(coord) % 256).getRGB() : ALL_KNOWN_WALL_COLOUR;
-                }
-                else if (knownByMultiple.contains(coord)) {
-                    knownAreaColour = pathable ? new Color(distances.get(coord) % 256, 0, 255).getRGB() : SOME_KNOWN_WALL_COLOUR;
+                boolean pathable = world.isPathable(x, y);
+                boolean knownByAll = count == agentCount;
+                boolean knownByMultiple = count > 1;
+                int knownAreaColour;
+                if (config.isDistanceDisplay()) {
+                    int distance = shortestDistanceFromStart(x, y);
+                    if (knownByAll) {
+                        knownAreaColour = pathable ? new Color(0, 255, distance % 256).getRGB() : ALL_KNOWN_WALL_COLOUR;
+                    }
+                    else if (knownByMultiple) {
+                        knownAreaColour = pathable ? new Color(distance % 256, 0, 255).getRGB() : SOME_KNOWN_WALL_COLOUR;
+                    }
+                    else {
+                        knownAreaColour = pathable ? new Color(255, distance % 256, 0).getRGB() : KNOWN_WALL_COLOUR;
+                    }
                 }
                 else {
-                    knownAreaColour = pathable ? new Color(255, distances.get(coord) % 256, 0).getRGB() : KNOWN_WALL_COLOUR;
+                    if (knownByAll) {
+                        knownAreaColour = pathable ? ALL_KNOWN_PATH_COLOUR : ALL_KNOWN_WALL_COLOUR;
+                    }
+                    else if (knownByMultiple) {
+                        knownAreaColour = pathable ? SOME_KNOWN_PATH_COLOUR : SOME_KNOWN_WALL_COLOUR;
+                    }
+                    else {
+                        knownAreaColour = pathable ? KNOWN_PATH_COLOUR : KNOWN_WALL_COLOUR;
+                    }
                 }
-            }
-            else {
-                if (knownByAll.contains(coord)) {
-                    knownAreaColour = pathable ? ALL_KNOWN_PATH_COLOUR : ALL_KNOWN_WALL_COLOUR;
-                }
-                else if (knownByMultiple.contains(coord)) {
-                    knownAreaColour = pathable ? SOME_KNOWN_PATH_COLOUR : SOME_KNOWN_WALL_COLOUR;
+
+                if (pixels != null) {
+                    pixels[y * worldWidth + x] = knownAreaColour;
                 }
                 else {
-                    knownAreaColour = pathable ? KNOWN_PATH_COLOUR : KNOWN_WALL_COLOUR;
+                    image.setRGB(x, y, knownAreaColour);
                 }
             }
-
-            image.setRGB(coord.getX(), coord.getY(), knownAreaColour);
-        });
+        }
         agents.forEach(swarmAgent -> swarmAgent.display(image));
-        graphics.dispose();
+        profiler.stop(TickProfiler.Phase.DISPLAY, started);
+    }
+
+    /**
+     * @return Pixel array of image if colours from Color.getRGB can be written straight into it,
+     * which is only true of INT_RGB and INT_ARGB images the size of the world
+     */
+    private int[] directPixels(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) return null;
+        if (image.getWidth() != worldWidth || image.getHeight() != worldHeight) return null;
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return buffer instanceof DataBufferInt ? ((DataBufferInt) buffer).getData() : null;
     }
 }
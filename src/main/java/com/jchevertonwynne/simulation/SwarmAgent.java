@@ -1,20 +1,29 @@
 package com.jchevertonwynne.simulation;
 
 import com.jchevertonwynne.display.Displayable;
-import com.jchevertonwynne.pathing.AStarPathing;
 import com.jchevertonwynne.pathing.BoundarySearch;
-import com.jchevertonwynne.pathing.PathMediator;
+import com.jchevertonwynne.pathing.DistanceField;
+import com.jchevertonwynne.pathing.HierarchicalPathing;
+import com.jchevertonwynne.profiling.TickProfiler;
 import com.jchevertonwynne.structures.BoundarySearchResult;
 import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.DiscoveryLog;
 import com.jchevertonwynne.structures.Drop;
+import com.jchevertonwynne.structures.FrontierSet;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+import com.jchevertonwynne.structures.KnowledgeGrid.TileConsumer;
 import com.jchevertonwynne.structures.Move;
+import com.jchevertonwynne.structures.OccupancyGrid;
 import com.jchevertonwynne.structures.TileStatus;
+import com.jchevertonwynne.utils.IntQueue;
+import com.jchevertonwynne.utils.SimulationConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -24,25 +33,19 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
-import static com.jchevertonwynne.structures.Coord.CARDINAL_DIRECTIONS;
-import static com.jchevertonwynne.utils.CircleOperations.generateCircleRays;
-import static com.jchevertonwynne.utils.Common.EMPLOY_DROPS;
-import static com.jchevertonwynne.utils.Common.GLOBAL_KNOWLEDGE;
-import static com.jchevertonwynne.utils.Common.SIGHT_RADIUS;
-import static com.jchevertonwynne.utils.Common.UNIFORM_AGENT_COLOUR;
+import static com.jchevertonwynne.structures.Coord.dx;
+import static com.jchevertonwynne.structures.Coord.dy;
 import static java.lang.Math.exp;
 import static java.lang.Math.log;
-import static java.util.Collections.singleton;
 import static java.util.Comparator.comparingDouble;
 import static java.util.Objects.hash;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
 
 public class SwarmAgent implements Displayable {
-    private enum AgentState {
+    enum AgentState {
         EXPLORING,
         FOLLOWING,
         RETURNING,
@@ -51,10 +54,12 @@ public class SwarmAgent implements Displayable {
 
     private final Logger logger = LoggerFactory.getLogger(SwarmAgent.class);
 
+    private final int id;
     private Coord position;
     private Coord currentGoal;
     private final Coord startPosition;
     private final Color color;
+    private final SimulationConfig config;
     private AgentState agentState;
 
     private Scanner scanner;
@@ -62,33 +67,91 @@ public class SwarmAgent implements Displayable {
     private int distanceMoved = 0;
     private int scansDone = 0;
     private boolean mediated;
+    private boolean scanDue;
 
-    private final Map<Coord, Boolean> world = new HashMap<>();
-    private final Map<Coord, Integer> distanceFromStart = new HashMap<>();
+    private final SharedKnowledge shared;
+    private final KnowledgeGrid world;
+    /**
+     * The same grid as world when this agent keeps its own knowledge, otherwise null
+     */
+    private final OccupancyGrid ownKnowledge;
+    private final DistanceField distanceFromStart;
+    private final FrontierSet frontier;
+    /**
+     * Null unless paths home are planned over cluster entrances
+     */
+    private final HierarchicalPathing pathing;
+    private final WallRegions walls;
+    private final VisibilityScores visibilityScores;
     private LinkedList<Coord> currentPath = new LinkedList<>();
 
-    private final Map<SwarmAgent, Set<Coord>> shareCache = new HashMap<>();
+    private final OccupancyGrid discovered;
+    private KnownByCounts knownBy;
+    private TickProfiler profiler = TickProfiler.disabled();
+    private final DiscoveryLog discoveries = new DiscoveryLog();
+    private final Map<SwarmAgent, Integer> acknowledged = new HashMap<>();
+    private final IntQueue learnedFirst = new IntQueue();
 
     private final Set<Coord> blackList = new HashSet<>();
+    private final List<Coord> recentlyBlacklisted = new ArrayList<>();
     private final Set<Coord> whiteList = new HashSet<>();
 
     private BoundarySearchResult boundarySearchResult;
 
-    public SwarmAgent(Coord position, Color color) {
+    public SwarmAgent(int id, Coord position, Color color, int worldWidth, int worldHeight, SimulationConfig config) {
+        this(id, position, color, null, new OccupancyGrid(worldWidth, worldHeight), config);
+    }
+
+    /**
+     * An agent working from knowledge shared with every other agent, which it only adds to by
+     * scanning and keeps no copy of
+     */
+    SwarmAgent(int id, Coord position, Color color, SharedKnowledge shared, SimulationConfig config) {
+        this(id, position, color, shared, null, config);
+    }
+
+    private SwarmAgent(int id, Coord position, Color color, SharedKnowledge shared, OccupancyGrid ownKnowledge, SimulationConfig config) {
+        this.id = id;
+        this.shared = shared;
+        this.ownKnowledge = ownKnowledge;
+        this.world = shared == null ? ownKnowledge : shared.getWorld();
         this.startPosition = position;
         this.position = position;
         this.currentGoal = position;
         this.color = color;
+        this.config = config;
         this.agentState = AgentState.EXPLORING;
         whiteList.add(startPosition);
-        world.put(startPosition, true);
-        distanceFromStart.put(position, 0);
+        if (shared == null) {
+            discovered = new OccupancyGrid(world.getWidth(), world.getHeight());
+            world.set(startPosition, true);
+            distanceFromStart = new DistanceField(world, startPosition);
+            frontier = new FrontierSet(world);
+            pathing = config.getReturnPathing() == ReturnPathing.HIERARCHICAL
+                    ? new HierarchicalPathing(world, config.getPathPlanner())
+                    : null;
+            walls = new WallRegions(world.getWidth(), world.getHeight(), config.getSightRadius());
+        }
+        else {
+            discovered = null;
+            distanceFromStart = shared.getDistances();
+            frontier = shared.getFrontier();
+            pathing = shared.getPathing();
+            walls = shared.getWalls();
+        }
+        visibilityScores = new VisibilityScores(world, walls, config.getSightRadius());
         logger.debug("Initialising agent {} at {}", this, startPosition);
     }
 
     public void initialiseScanner(ScannerFactory scannerFactory) {
         scanner = scannerFactory.instance(this);
-        scanner.getOtherLocalAgents().forEach(agent -> shareCache.put(agent, new HashSet<>()));
+    }
+
+    /**
+     * @return Position of this agent in the simulation's agent order
+     */
+    public int getId() {
+        return id;
     }
 
     public Coord getPosition() {
@@ -103,12 +166,11 @@ public class SwarmAgent implements Displayable {
         return color;
     }
 
-    public Map<Coord, Boolean> getWorld() {
+    public KnowledgeGrid getWorld() {
         return world;
-//        return new HashMap<>(world);
     }
 
-    public Map<Coord, Integer> getDistances() {
+    public DistanceField getDistances() {
         return distanceFromStart;
     }
 
@@ -116,80 +178,160 @@ public class SwarmAgent implements Displayable {
         return scansDone;
     }
 
-    public boolean isFinished() {
-        return agentState.equals(AgentState.FINISHED);
+    public int getDistanceMoved() {
+        return distanceMoved;
     }
 
-    public void shareWorldInfo(Map<Coord, Boolean> newInformation) {
-        if (newInformation.size() > 0) {
-            world.putAll(newInformation);
-            reflowDistances();
-        }
+    /**
+     * Count this agent in for every tile it knows, now and from here on
+     */
+    void trackKnowledge(KnownByCounts knownBy) {
+        this.knownBy = knownBy;
+        world.forEachKnown((x, y, pathable) -> knownBy.learned(x, y));
+    }
+
+    /**
+     * Record this agent's phases and work from here on
+     */
+    void profileWith(TickProfiler profiler) {
+        this.profiler = profiler;
+        if (pathing != null) pathing.profileWith(profiler);
     }
 
-    public Map<Coord, Boolean> getToShare(SwarmAgent agent) {
-        Set<Coord> coords = shareCache.get(agent);
-        Map<Coord, Boolean> coordsToShare = coords
-                .stream()
-                .collect(toMap(c -> c, world::get));
-        coords.clear();
-        return coordsToShare;
+    AgentState getState() {
+        return agentState;
     }
 
-    public boolean shareWithNeighbours(PathMediator mediator) {
-        if (agentState.equals(AgentState.FINISHED) || agentState.equals(AgentState.RETURNING)) return false;
+    /**
+     * Pass on every coordinate blacklisted since the last call
+     */
+    void drainBlacklisted(Consumer<Coord> consumer) {
+        recentlyBlacklisted.forEach(consumer);
+        recentlyBlacklisted.clear();
+    }
 
-        // update all nearby agents with latest world info and get latest from them
-        Set<SwarmAgent> otherLocalAgents = scanner.getOtherLocalAgents();
-        otherLocalAgents.forEach(agent -> {
-            agent.shareWorldInfo(getToShare(agent));
-            shareWorldInfo(agent.getToShare(this));
-        });
-
-        boolean repathed = false;
-        if (nonNull(currentGoal)) {
-            Set<SwarmAgent> headingSameWay = otherLocalAgents.stream()
-                    .filter(agent -> nonNull(agent.getCurrentGoal()))
-                    .filter(agent -> agent.getCurrentGoal().distance(currentGoal) <= SIGHT_RADIUS)
-                    .collect(toSet());
-
-            for (SwarmAgent swarmAgent : headingSameWay) {
-                repathed |= mediator.mediate(this, swarmAgent);
-            }
+    public boolean isFinished() {
+        return agentState.equals(AgentState.FINISHED);
+    }
 
-            if (!GLOBAL_KNOWLEDGE && EMPLOY_DROPS) {
-                List<Drop> localDrops = scanner.getLocalDrops();
-                Optional<Coord> dropAtGoal = localDrops.stream()
-                        .map(Drop::getCoord)
-                        .filter(drop -> drop.distance(currentGoal) <= SIGHT_RADIUS)
-                        .findFirst();
-                if (dropAtGoal.isPresent()) {
-                    Coord drop = dropAtGoal.get();
-                    boolean blackListed = blacklistCoord(drop);
-                    if (blackListed) logger.info("Agent {} found drop {} and will re-path", this, drop);
-                    repathed |= blackListed;
+    /**
+     * Merge every tile a peer has discovered since this agent last heard from it. A long backlog
+     * is merged by combining with the peer's whole discovery grid rather than record by record.
+     * Only agents keeping their own knowledge receive discoveries.
+     */
+    public void receiveDiscoveries(SwarmAgent peer) {
+        int from = acknowledged.getOrDefault(peer, 0);
+        int to = peer.discoveries.getSequence();
+        if (from == to) return;
+
+        profiler.count(TickProfiler.Counter.TILES_SHARED, to - from);
+        if (to - from > ownKnowledge.getWordCount()) {
+            ownKnowledge.union(peer.discovered, this::learned);
+        }
+        else {
+            int width = world.getWidth();
+            for (int sequence = from; sequence < to; sequence++) {
+                int record = peer.discoveries.record(sequence);
+                int index = DiscoveryLog.tileIndex(record);
+                boolean pathable = DiscoveryLog.isPathable(record);
+                if (world.set(index % width, index / width, pathable)) {
+                    learned(index % width, index / width, pathable);
                 }
             }
         }
+        acknowledged.put(peer, to);
+        updateDistances();
+    }
+
+    /**
+     * @return Whether this agent still shares its discoveries and goal with its neighbours
+     */
+    boolean isSharing() {
+        return !agentState.equals(AgentState.FINISHED) && !agentState.equals(AgentState.RETURNING);
+    }
+
+    /**
+     * @return Agents close enough and in sight to share with
+     */
+    List<SwarmAgent> findNeighbours() {
+        return scanner.getOtherLocalAgents();
+    }
+
+    /**
+     * @return Whether both agents have goals close enough together that one should give way
+     */
+    boolean isHeadingSameWay(SwarmAgent other) {
+        return nonNull(currentGoal)
+                && nonNull(other.getCurrentGoal())
+                && other.getCurrentGoal().distance(currentGoal) <= config.getSightRadius();
+    }
 
-        return repathed;
+    /**
+     * Give up the current goal if another agent has left a drop near it
+     * @return Whether this agent needs to choose a new move
+     */
+    boolean checkDrops() {
+        if (config.isGlobalKnowledge() || !config.isEmployDrops() || currentGoal == null) return false;
+
+        Optional<Coord> dropAtGoal = scanner.getLocalDrops().stream()
+                .map(Drop::getCoord)
+                .filter(drop -> drop.distance(currentGoal) <= config.getSightRadius())
+                .findFirst();
+        if (dropAtGoal.isPresent()) {
+            Coord drop = dropAtGoal.get();
+            boolean blackListed = blacklistCoord(drop);
+            if (blackListed) logger.debug("Agent {} found drop {} and will re-path", this, drop);
+            return blackListed;
+        }
+        return false;
     }
 
     public void processTurn() {
-        if (agentState.equals(AgentState.FINISHED) || agentState.equals(AgentState.RETURNING)) return;
+        if (!beginTurn()) return;
+        if (scanDue) {
+            scanArea();
+            updateDistances();
+        }
+        decideMove();
+    }
 
-        if (agentState.equals(AgentState.FOLLOWING) && goalHasUnknownNeighbour() &&  currentPath.size() > 0) return;
+    /**
+     * Work out whether this agent needs a new move this turn, and whether it scans first
+     * @return Whether a new move is needed
+     */
+    boolean beginTurn() {
+        scanDue = false;
+        if (agentState.equals(AgentState.FINISHED) || agentState.equals(AgentState.RETURNING)) return false;
+
+        if (agentState.equals(AgentState.FOLLOWING) && goalHasUnknownNeighbour() &&  currentPath.size() > 0) return false;
 
         if (mediated) {
             mediated = false;
         }
         else if (position.equals(currentGoal)) {
-            logger.info("Agent {} scanning at {}", this,  position);
-            scanArea();
-            reflowDistances();
+            scanDue = true;
         }
-        boundarySearchResult = BoundarySearch.calculateBoundaryTiles(position, world, blackList);
+        return true;
+    }
+
+    boolean isScanDue() {
+        return scanDue;
+    }
+
+    /**
+     * Search out from the current position for frontier tiles and set off towards the best
+     */
+    void decideMove() {
+        long started = profiler.start();
+        boundarySearchResult = BoundarySearch.calculateBoundaryTiles(position, world, frontier, blackList, config);
+        profiler.stop(TickProfiler.Phase.BOUNDARY_SEARCH, started);
+        profiler.count(TickProfiler.Counter.BOUNDARY_TILES_VISITED, boundarySearchResult.getTilesVisited());
+        profiler.size(TickProfiler.Size.BOUNDARY_LEVEL, boundarySearchResult.getWidestLevel());
+        profiler.size(TickProfiler.Size.FRONTIER, frontier.size());
+
+        started = profiler.start();
         chooseNextMove();
+        profiler.stop(TickProfiler.Phase.CHOOSE_MOVE, started);
     }
 
     private void chooseNextMove() {
@@ -197,30 +339,33 @@ public class SwarmAgent implements Displayable {
 
         if (!legalMoves.isEmpty()) {
             Coord tile = rankNextMoves(legalMoves);
-            if (!GLOBAL_KNOWLEDGE && EMPLOY_DROPS) scanner.putDrop();
-            currentPath = AStarPathing.calculatePath(position, tile, world);
+            if (!config.isGlobalKnowledge() && config.isEmployDrops()) scanner.putDrop();
+            currentPath = boundarySearchResult.pathTo(tile);
             agentState = AgentState.FOLLOWING;
-            logger.info("Agent {} now moving to {} from {}", this, tile, position);
+            logger.debug("Agent {} now moving to {} from {}", this, tile, position);
         }
         else {
             List<Move> blacklistedMoves = boundarySearchResult.getBlacklistedMoves();
             if (!blacklistedMoves.isEmpty()) {
                 Coord tile = rankNextMoves(blacklistedMoves);
                 List<Coord> toWhiteList = blackList.stream()
-                        .filter(b -> b.distance(tile) < SIGHT_RADIUS)
+                        .filter(b -> b.distance(tile) < config.getSightRadius())
                         .collect(toList());
                 blackList.removeAll(toWhiteList);
                 whiteList.addAll(toWhiteList);
                 whiteList.add(tile);
-                if (!GLOBAL_KNOWLEDGE && EMPLOY_DROPS) scanner.putDrop();
-                currentPath = AStarPathing.calculatePath(position, tile, world);
+                if (!config.isGlobalKnowledge() && config.isEmployDrops()) scanner.putDrop();
+                currentPath = boundarySearchResult.pathTo(tile);
                 agentState = AgentState.FOLLOWING;
-                logger.info("Agent {} white listing and going to {} from {}", this, tile, position);
+                logger.debug("Agent {} white listing and going to {} from {}", this, tile, position);
             }
             else {
-                logger.info("Agent {} going back to start {} from {}", this,  startPosition, position);
-                currentPath = AStarPathing.calculatePath(position, startPosition, world);
+                logger.debug("Agent {} going back to start {} from {}", this,  startPosition, position);
+                currentPath = pathing == null
+                        ? distanceFromStart.pathToSource(position)
+                        : pathing.calculatePath(position, startPosition);
                 agentState = AgentState.RETURNING;
+                profiler.count(TickProfiler.Counter.RETURN_PATH_STEPS, currentPath.size());
             }
         }
         currentGoal = currentPath.getLast();
@@ -241,17 +386,12 @@ public class SwarmAgent implements Displayable {
      * @return double Arbitrary score number of goodness
      */
     private double evaluateGoodness(Move move) {
-        try {
-            Coord tile = move.getTile();
-            int distance = distanceFromStart.get(tile);
-            int distanceTo = move.getDistance();
-            int discoverable = calculatePotentialNewVisible(tile);
-            return distance  * exp(- distanceTo) * log(discoverable);
-        }
-        catch (NullPointerException e) {
-            System.out.println("lmao");
-        }
-        return 0;
+        Coord tile = move.getTile();
+        int distance = distanceFromStart.get(tile);
+        if (distance == DistanceField.UNREACHABLE) return 0;
+        int distanceTo = move.getDistance();
+        int discoverable = calculatePotentialNewVisible(tile);
+        return distance  * exp(- distanceTo) * log(discoverable);
     }
 
     /**
@@ -260,20 +400,17 @@ public class SwarmAgent implements Displayable {
      * @return number of potentially visible tiles from coord
      */
     private int calculatePotentialNewVisible(Coord coord) {
-        List<List<Coord>> rays = generateCircleRays(coord, SIGHT_RADIUS);
-        Set<Coord> seen = new HashSet<>();
-
-        return (int) rays.stream().map(ray -> ray.stream()
-                .takeWhile(rayCoord -> world.getOrDefault(rayCoord, true))
-                .filter(seen::add)
-                .count()).count();
+        return visibilityScores.potentialVisible(coord.getX(), coord.getY());
     }
 
     /**
      * Scan area, increase scan counter and store previous positions
      */
-    private void scanArea() {
+    void scanArea() {
+        logger.debug("Agent {} scanning at {}", this,  position);
+        long started = profiler.start();
         scanner.scan();
+        profiler.stop(TickProfiler.Phase.SCAN, started);
         scansDone++;
     }
 
@@ -302,48 +439,70 @@ public class SwarmAgent implements Displayable {
     }
 
     private boolean goalHasUnknownNeighbour() {
-        return CARDINAL_DIRECTIONS.stream()
-                .map(currentGoal::combine)
-                .filter(world::containsKey)
-                .count() < 4;
-    }
-
-    private List<Coord> neighbours(Coord coord) {
-        return CARDINAL_DIRECTIONS.stream()
-                .map(coord::combine)
-                .filter(world::containsKey)
-                .filter(world::get)
-                .collect(toList());
-    }
-
-    private void reflowDistances() {
-        List<Coord> toTry = new LinkedList<>(neighbours(startPosition));
-        Set<Coord> seen = new HashSet<>(singleton(startPosition));
-        while (!toTry.isEmpty()) {
-            Coord coord = toTry.remove(0);
-            if (seen.contains(coord)) continue;
-            seen.add(coord);
-            List<Coord> neighbours = neighbours(coord);
-            int neighbourScore = neighbours.stream()
-                    .filter(seen::contains)
-                    .mapToInt(distanceFromStart::get)
-                    .min()
-                    .getAsInt();
-            distanceFromStart.put(coord, neighbourScore + 1);
-            neighbours.stream()
-                    .filter(n -> !seen.contains(n))
-                    .forEach(toTry::add);
+        for (int direction = 0; direction < 4; direction++) {
+            if (!world.isKnown(currentGoal.getX() + dx(direction), currentGoal.getY() + dy(direction))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Relax distances from start through tiles discovered since the last update
+     */
+    private void updateDistances() {
+        long started = profiler.start();
+        distanceFromStart.update();
+        if (config.isVerifyDistances()) {
+            distanceFromStart.verify();
         }
+        profiler.stop(TickProfiler.Phase.DISTANCES, started);
     }
 
     public void setWorldStatus(TileStatus status) {
-        Coord coord = status.getCoord();
-        world.put(coord, status.isPathable());
-        shareCache.forEach((agent, toShare) -> toShare.add(coord));
+        setWorldStatus(status.getCoord().getX(), status.getCoord().getY(), status.isPathable());
+    }
+
+    public void setWorldStatus(int x, int y, boolean pathable) {
+        if (world.set(x, y, pathable)) {
+            if (shared != null) {
+                learnedFirst.add(DiscoveryLog.pack(world.index(x, y), pathable));
+                return;
+            }
+            discovered.set(x, y, pathable);
+            discoveries.append(world.index(x, y), pathable);
+            learned(x, y, pathable);
+        }
+    }
+
+    /**
+     * Pass on every tile of shared knowledge this agent was first to learn since the last call
+     */
+    void drainLearned(TileConsumer consumer) {
+        profiler.size(TickProfiler.Size.LEARNED_QUEUE, learnedFirst.size());
+        int width = world.getWidth();
+        while (!learnedFirst.isEmpty()) {
+            int record = learnedFirst.poll();
+            int index = DiscoveryLog.tileIndex(record);
+            consumer.accept(index % width, index / width, DiscoveryLog.isPathable(record));
+        }
+    }
+
+    /**
+     * Bookkeeping for a tile this agent did not know before, however it found out
+     */
+    private void learned(int x, int y, boolean pathable) {
+        if (pathable) {
+            distanceFromStart.tileAdded(x, y);
+            if (pathing != null) pathing.tileAdded(x, y);
+        }
+        frontier.tileLearned(x, y);
+        if (!pathable) walls.wallLearned(x, y);
+        if (knownBy != null) knownBy.learned(x, y);
     }
 
     public boolean blacklistCoord(Coord coord) {
-        if (whiteList.stream().allMatch(w -> w.distance(coord) >= SIGHT_RADIUS) && blackList.add(coord)) {
+        if (whiteList.stream().allMatch(w -> w.distance(coord) >= config.getSightRadius()) && blackList.add(coord)) {
+            recentlyBlacklisted.add(coord);
+            profiler.count(TickProfiler.Counter.BLACKLISTED, 1);
             mediated = true;
             agentState = AgentState.EXPLORING;
             currentGoal = startPosition;
@@ -389,7 +548,7 @@ public class SwarmAgent implements Displayable {
         graphics.setColor(Color.BLACK);
         graphics.drawOval(position.getX() - 4, position.getY() - 4, 8, 8);
         graphics.drawOval(position.getX() - 3, position.getY() - 3, 6, 6);
-        Color displayColor = UNIFORM_AGENT_COLOUR ? Color.YELLOW : color;
+        Color displayColor = config.isUniformAgentColour() ? Color.YELLOW : color;
         graphics.setColor(displayColor);
         graphics.fillOval(position.getX() - 4, position.getY() - 4, 8, 8);
     }
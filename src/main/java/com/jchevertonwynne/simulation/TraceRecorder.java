@@ -0,0 +1,99 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.trace.TraceHeader;
+import com.jchevertonwynne.trace.TraceWriter;
+import com.jchevertonwynne.utils.SimulationConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Turns the state of every agent at the end of each tick into trace events, only recording
+ * what changed since the tick before
+ */
+class TraceRecorder {
+    private final TraceWriter writer;
+    private final Coord[] positions;
+    private final Coord[] goals;
+    private final SwarmAgent.AgentState[] states;
+    private final int[] scans;
+    private int tick;
+
+    TraceRecorder(SimulationConfig config, long seed, int worldWidth, int worldHeight, List<SwarmAgent> agents) {
+        TraceHeader header = new TraceHeader(
+                config.getBackgroundName(),
+                config.getPathThreshold(),
+                worldWidth,
+                worldHeight,
+                config.getStartPosition(),
+                config.getSightRadius(),
+                config.getVisibilityType(),
+                seed,
+                agents.stream().map(SwarmAgent::getColor).collect(toList())
+        );
+        try {
+            writer = new TraceWriter(Paths.get(config.getTraceFile()), header);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create trace " + config.getTraceFile(), e);
+        }
+        positions = new Coord[agents.size()];
+        goals = new Coord[agents.size()];
+        states = new SwarmAgent.AgentState[agents.size()];
+        scans = new int[agents.size()];
+        agents.forEach(agent -> {
+            positions[agent.getId()] = agent.getPosition();
+            goals[agent.getId()] = agent.getCurrentGoal();
+            states[agent.getId()] = agent.getState();
+        });
+    }
+
+    /**
+     * Record the decisions agents made this tick, before they move
+     */
+    void recordDecisions(List<SwarmAgent> agents) {
+        writer.tick(tick++);
+        for (SwarmAgent agent : agents) {
+            int id = agent.getId();
+            if (agent.getScansDone() != scans[id]) {
+                scans[id] = agent.getScansDone();
+                writer.scanned(id, agent.getPosition().getX(), agent.getPosition().getY());
+            }
+            agent.drainBlacklisted(coord -> writer.blacklisted(id, coord.getX(), coord.getY()));
+            Coord goal = agent.getCurrentGoal();
+            if (goal != null && !goal.equals(goals[id])) {
+                goals[id] = goal;
+                writer.goalChosen(id, goal.getX(), goal.getY());
+            }
+            if (agent.getState() != states[id]) {
+                states[id] = agent.getState();
+                writer.stateChanged(id, states[id].ordinal());
+            }
+        }
+    }
+
+    /**
+     * Record the agents that moved this tick
+     */
+    void recordMoves(List<SwarmAgent> agents) {
+        for (SwarmAgent agent : agents) {
+            int id = agent.getId();
+            if (!agent.getPosition().equals(positions[id])) {
+                positions[id] = agent.getPosition();
+                writer.moved(id, positions[id].getX(), positions[id].getY());
+            }
+        }
+    }
+
+    void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not finish trace", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.KnowledgeGrid;
+import com.jchevertonwynne.utils.RayTable;
+
+import java.util.Arrays;
+
+/**
+ * Memoised counts of the tiles potentially visible from each candidate tile of one agent's
+ * world. A count only depends on the known walls within sight radius of its tile, so a cached
+ * count stays valid while the WallRegions its sight square touches have gained no walls since
+ * it was calculated.
+ * <p>
+ * Counts are kept in an open addressed table keyed by tile index, as only tiles that have been
+ * frontier candidates are ever scored.
+ */
+class VisibilityScores {
+    private static final int EMPTY = -1;
+
+    private final KnowledgeGrid world;
+    private final WallRegions walls;
+    private final RayTable rays;
+    private final int radius;
+
+    private int[] keys = new int[256];
+    private int[] scores = new int[256];
+    private int[] calculatedAt = new int[256];
+    private int size;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param walls Told of every wall learned in world, may be shared with other agents'
+     * scores over the same world
+     */
+    VisibilityScores(KnowledgeGrid world, WallRegions walls, int sightRadius) {
+        this.world = world;
+        this.walls = walls;
+        this.rays = RayTable.forRadius(sightRadius);
+        this.radius = sightRadius;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return Number of distinct tiles visible from x, y treating unknown tiles as open
+     */
+    int potentialVisible(int x, int y) {
+        int key = world.index(x, y);
+        int slot = slot(key);
+        if (keys[slot] == key && walls.unchangedSince(x, y, radius, calculatedAt[slot])) {
+            hits++;
+            return scores[slot];
+        }
+
+        misses++;
+        int score = rays.countVisible(world, x, y);
+        if (keys[slot] != key) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        scores[slot] = score;
+        calculatedAt[slot] = walls.getWallsLearned();
+        return score;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Slot holding key, or the empty slot it would go in
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> 1 & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldScores = scores;
+        int[] oldCalculatedAt = calculatedAt;
+        keys = new int[oldKeys.length * 2];
+        scores = new int[keys.length];
+        calculatedAt = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            scores[slot] = oldScores[i];
+            calculatedAt[slot] = oldCalculatedAt[i];
+        }
+    }
+}
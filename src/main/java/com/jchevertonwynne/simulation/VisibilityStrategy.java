@@ -0,0 +1,16 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.KnowledgeGrid.TileConsumer;
+import com.jchevertonwynne.structures.Terrain;
+
+/**
+ * Decides which tiles of the true world an agent can see from where it stands
+ */
+public interface VisibilityStrategy {
+    /**
+     * Report every visible tile within radius of the centre to visitor. A tile may be reported
+     * more than once in the same scan, so visitor must not count reports as tiles.
+     * @param world True terrain
+     */
+    void scan(Terrain world, int centreX, int centreY, int radius, TileConsumer visitor);
+}
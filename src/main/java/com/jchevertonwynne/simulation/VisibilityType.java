@@ -0,0 +1,16 @@
+package com.jchevertonwynne.simulation;
+
+public enum VisibilityType {
+    RAY_CAST(new RayCastVisibility()),
+    SHADOW_CAST(new ShadowCastVisibility());
+
+    private final VisibilityStrategy strategy;
+
+    VisibilityType(VisibilityStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public VisibilityStrategy getStrategy() {
+        return strategy;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jchevertonwynne.simulation;
+
+/**
+ * A world split into square regions, each stamped with the running count of walls learned at
+ * the time it last gained one, so values depending on the walls near a tile can tell whether
+ * any have appeared since they were worked out.
+ */
+class WallRegions {
+    private final int width;
+    private final int height;
+    private final int size;
+    private final int columns;
+    private final int[] stamps;
+    private int wallsLearned;
+
+    WallRegions(int width, int height, int regionSize) {
+        this.width = width;
+        this.height = height;
+        this.size = Math.max(regionSize, 1);
+        this.columns = (width + size - 1) / size;
+        this.stamps = new int[columns * ((height + size - 1) / size)];
+    }
+
+    int getWallsLearned() {
+        return wallsLearned;
+    }
+
+    void wallLearned(int x, int y) {
+        stamps[(y / size) * columns + x / size] = ++wallsLearned;
+    }
+
+    /**
+     * @return Whether no wall within radius of x, y, give or take a region, has been learned
+     * after stamp
+     */
+    boolean unchangedSince(int x, int y, int radius, int stamp) {
+        int firstColumn = Math.max(x - radius, 0) / size;
+        int lastColumn = Math.min(x + radius, width - 1) / size;
+        int firstRow = Math.max(y - radius, 0) / size;
+        int lastRow = Math.min(y + radius, height - 1) / size;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                if (stamps[row * columns + column] > stamp) return false;
+            }
+        }
+        return true;
+    }
+}
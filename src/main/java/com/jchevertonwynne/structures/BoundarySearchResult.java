@@ -2,14 +2,36 @@ package com.jchevertonwynne.structures;
 
 import lombok.Value;
 
+import java.util.LinkedList;
 import java.util.List;
 
 @Value
 public class BoundarySearchResult {
+    public interface PathSource {
+        LinkedList<Coord> pathTo(Coord tile);
+    }
+
     List<Move> legalMoves;
     List<Move> blacklistedMoves;
+    PathSource paths;
+    /**
+     * Tiles taken off the search queue
+     */
+    int tilesVisited;
+    /**
+     * Most tiles queued at the same distance
+     */
+    int widestLevel;
 
     public boolean movesAvailable() {
         return legalMoves.size() != 0 || blacklistedMoves.size() != 0;
     }
+
+    /**
+     * @param tile One of the moves in this result
+     * @return Path from the search origin to tile, excluding the origin
+     */
+    public LinkedList<Coord> pathTo(Coord tile) {
+        return paths.pathTo(tile);
+    }
 }
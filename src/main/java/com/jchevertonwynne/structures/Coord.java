@@ -18,6 +18,25 @@ public class Coord {
             new Coord(-1, 0)
     );
 
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    /**
+     * @param direction Index into CARDINAL_DIRECTIONS, for loops over int tile positions
+     * @return x offset of that direction
+     */
+    public static int dx(int direction) {
+        return DX[direction];
+    }
+
+    /**
+     * @param direction Index into CARDINAL_DIRECTIONS, for loops over int tile positions
+     * @return y offset of that direction
+     */
+    public static int dy(int direction) {
+        return DY[direction];
+    }
+
     public Coord combine(Coord other) {
         return new Coord(
                 x + other.getX(),
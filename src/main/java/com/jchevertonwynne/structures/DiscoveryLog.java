@@ -0,0 +1,46 @@
+package com.jchevertonwynne.structures;
+
+import java.util.Arrays;
+
+/**
+ * Append-only record of the tiles an agent discovered itself, in discovery order. Each record
+ * packs a tile index (y * width + x) and its pathability into one int, and its position in the
+ * log serves as a sequence number, so a reader only needs to remember how far it has read.
+ */
+public class DiscoveryLog {
+    private int[] records = new int[256];
+    private int sequence;
+
+    public void append(int tileIndex, boolean pathable) {
+        if (sequence == records.length) {
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+        records[sequence++] = pack(tileIndex, pathable);
+    }
+
+    /**
+     * @return Number of records appended so far, which is also the sequence of the next record
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int record(int sequence) {
+        if (sequence >= this.sequence) {
+            throw new IndexOutOfBoundsException(sequence + " has not been recorded yet");
+        }
+        return records[sequence];
+    }
+
+    public static int pack(int tileIndex, boolean pathable) {
+        return tileIndex << 1 | (pathable ? 1 : 0);
+    }
+
+    public static int tileIndex(int record) {
+        return record >>> 1;
+    }
+
+    public static boolean isPathable(int record) {
+        return (record & 1) != 0;
+    }
+}
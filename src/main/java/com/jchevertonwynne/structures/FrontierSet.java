@@ -0,0 +1,60 @@
+package com.jchevertonwynne.structures;
+
+/**
+ * Tiles of a KnowledgeGrid known to be pathable with at least one unknown neighbour, kept as a
+ * bitset that is updated tile by tile as knowledge arrives. Tiles outside the grid count as
+ * unknown, as they do in the grid itself.
+ */
+public class FrontierSet {
+    private final KnowledgeGrid world;
+    private final long[] frontier;
+    private int size;
+
+    public FrontierSet(KnowledgeGrid world) {
+        this.world = world;
+        this.frontier = new long[(int) (((long) world.getWidth() * world.getHeight() + 63) >>> 6)];
+        world.forEachKnown((x, y, pathable) -> update(x, y));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int x, int y) {
+        if (!world.inBounds(x, y)) return false;
+        int index = world.index(x, y);
+        return (frontier[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean contains(Coord coord) {
+        return contains(coord.getX(), coord.getY());
+    }
+
+    /**
+     * Re-evaluate a tile that has just become known, along with its neighbours which may have
+     * lost their last unknown neighbour
+     */
+    public void tileLearned(int x, int y) {
+        update(x, y);
+        for (int direction = 0; direction < 4; direction++) {
+            update(x + Coord.dx(direction), y + Coord.dy(direction));
+        }
+    }
+
+    private void update(int x, int y) {
+        if (!world.inBounds(x, y)) return;
+        boolean isFrontier = world.isPathable(x, y)
+                && (!world.isKnown(x, y + 1) || !world.isKnown(x + 1, y) || !world.isKnown(x, y - 1) || !world.isKnown(x - 1, y));
+        int index = world.index(x, y);
+        long mask = 1L << index;
+        boolean wasFrontier = (frontier[index >>> 6] & mask) != 0;
+        if (isFrontier && !wasFrontier) {
+            frontier[index >>> 6] |= mask;
+            size++;
+        }
+        else if (!isFrontier && wasFrontier) {
+            frontier[index >>> 6] &= ~mask;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.jchevertonwynne.structures;
+
+/**
+ * Tri-state (unknown / path / wall) knowledge of a world. A tile is unknown until set, and tiles
+ * outside the grid are always unknown. Tile indices run along rows, y * width + x.
+ */
+public interface KnowledgeGrid {
+    @FunctionalInterface
+    interface TileConsumer {
+        void accept(int x, int y, boolean pathable);
+    }
+
+    int getWidth();
+
+    int getHeight();
+
+    int getKnownCount();
+
+    default boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < getWidth() && y < getHeight();
+    }
+
+    default boolean inBounds(Coord coord) {
+        return inBounds(coord.getX(), coord.getY());
+    }
+
+    default int index(int x, int y) {
+        return y * getWidth() + x;
+    }
+
+    boolean isKnown(int x, int y);
+
+    default boolean isKnown(Coord coord) {
+        return isKnown(coord.getX(), coord.getY());
+    }
+
+    /**
+     * @return true only for tiles known to be pathable
+     */
+    boolean isPathable(int x, int y);
+
+    default boolean isPathable(Coord coord) {
+        return isPathable(coord.getX(), coord.getY());
+    }
+
+    /**
+     * @return true only for tiles known to be walls
+     */
+    default boolean isWall(int x, int y) {
+        return isKnown(x, y) && !isPathable(x, y);
+    }
+
+    /**
+     * @param unknownValue Value to report for tiles not yet known
+     * @return Pathability of a known tile, otherwise unknownValue
+     */
+    default boolean pathableOrDefault(Coord coord, boolean unknownValue) {
+        return isKnown(coord) ? isPathable(coord) : unknownValue;
+    }
+
+    /**
+     * Record the status of a tile inside the grid
+     * @return true if the tile was previously unknown
+     */
+    boolean set(int x, int y, boolean isPathable);
+
+    default boolean set(Coord coord, boolean isPathable) {
+        if (!inBounds(coord)) {
+            throw new IndexOutOfBoundsException(coord + " is outside of the grid");
+        }
+        return set(coord.getX(), coord.getY(), isPathable);
+    }
+
+    /**
+     * Visit every known tile in index order
+     */
+    void forEachKnown(TileConsumer consumer);
+}
@@ -0,0 +1,136 @@
+package com.jchevertonwynne.structures;
+
+/**
+ * Knowledge of a world held by one agent, packed into two bitsets. Once a tile is known its
+ * pathability is stored in the second bitset.
+ */
+public class OccupancyGrid implements KnowledgeGrid {
+    private final int width;
+    private final int height;
+    private final long[] known;
+    private final long[] pathable;
+    private int knownCount;
+
+    public OccupancyGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        int words = (int) (((long) width * height + 63) >>> 6);
+        this.known = new long[words];
+        this.pathable = new long[words];
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getKnownCount() {
+        return knownCount;
+    }
+
+    @Override
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * @return Number of words in each bitset, the cost of a union
+     */
+    public int getWordCount() {
+        return known.length;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public boolean isKnown(int x, int y) {
+        return inBounds(x, y) && bit(known, index(x, y));
+    }
+
+    @Override
+    public boolean isPathable(int x, int y) {
+        return inBounds(x, y) && bit(pathable, index(x, y));
+    }
+
+    /**
+     * Record the status of a tile, replacing any status it had
+     * @return true if the tile was previously unknown
+     */
+    @Override
+    public boolean set(int x, int y, boolean isPathable) {
+        int index = index(x, y);
+        int word = index >>> 6;
+        long mask = 1L << index;
+        boolean newlyKnown = (known[word] & mask) == 0;
+        known[word] |= mask;
+        if (isPathable) {
+            pathable[word] |= mask;
+        }
+        else {
+            pathable[word] &= ~mask;
+        }
+        if (newlyKnown) {
+            knownCount++;
+        }
+        return newlyKnown;
+    }
+
+    /**
+     * Add all knowledge from another grid of the same size to this one
+     */
+    public void union(OccupancyGrid other) {
+        union(other, null);
+    }
+
+    /**
+     * Add all knowledge from another grid of the same size to this one
+     * @param added Told of every tile that was unknown here, may be null
+     */
+    public void union(OccupancyGrid other, TileConsumer added) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Cannot combine grids of differing sizes");
+        }
+        for (int word = 0; word < known.length; word++) {
+            long newlyKnown = other.known[word] & ~known[word];
+            if (newlyKnown != 0) {
+                known[word] |= newlyKnown;
+                pathable[word] |= other.pathable[word] & newlyKnown;
+                knownCount += Long.bitCount(newlyKnown);
+                if (added != null) {
+                    forEachBit(word, newlyKnown, added);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachKnown(TileConsumer consumer) {
+        for (int word = 0; word < known.length; word++) {
+            forEachBit(word, known[word], consumer);
+        }
+    }
+
+    private void forEachBit(int word, long bits, TileConsumer consumer) {
+        while (bits != 0) {
+            int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+            consumer.accept(index % width, index / width, bit(pathable, index));
+            bits &= bits - 1;
+        }
+    }
+
+    private static boolean bit(long[] words, int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.jchevertonwynne.structures;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Knowledge of a world shared by every agent, safe to read and write from any thread. Each tile
+ * takes two adjacent bits of one word, known and pathable, so both are published by a single
+ * compare and set and a reader never sees a tile known without its pathability.
+ * <p>
+ * Tiles only ever go from unknown to known. Setting a tile that is already known leaves it as
+ * it was, since every agent reads the same terrain.
+ */
+public class SharedOccupancyGrid implements KnowledgeGrid {
+    private static final long KNOWN = 1;
+    private static final long PATHABLE = 2;
+
+    private final int width;
+    private final int height;
+    private final AtomicLongArray tiles;
+    private final AtomicInteger knownCount = new AtomicInteger();
+
+    public SharedOccupancyGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.tiles = new AtomicLongArray((int) (((long) width * height + 31) >>> 5));
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getKnownCount() {
+        return knownCount.get();
+    }
+
+    @Override
+    public boolean isKnown(int x, int y) {
+        return (tile(x, y) & KNOWN) != 0;
+    }
+
+    @Override
+    public boolean isPathable(int x, int y) {
+        return (tile(x, y) & PATHABLE) != 0;
+    }
+
+    @Override
+    public boolean isWall(int x, int y) {
+        return tile(x, y) == KNOWN;
+    }
+
+    /**
+     * Record the status of a tile if no agent has yet
+     * @return true if this call made the tile known
+     */
+    @Override
+    public boolean set(int x, int y, boolean isPathable) {
+        int index = index(x, y);
+        int word = index >>> 5;
+        int shift = (index & 31) << 1;
+        long bits = (isPathable ? KNOWN | PATHABLE : KNOWN) << shift;
+        long current;
+        do {
+            current = tiles.get(word);
+            if ((current & (KNOWN << shift)) != 0) return false;
+        } while (!tiles.compareAndSet(word, current, current | bits));
+        knownCount.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void forEachKnown(TileConsumer consumer) {
+        int size = width * height;
+        for (int word = 0; word < tiles.length(); word++) {
+            long bits = tiles.get(word);
+            for (int tile = 0; bits != 0; tile++, bits >>>= 2) {
+                if ((bits & KNOWN) != 0) {
+                    int index = (word << 5) + tile;
+                    if (index < size) consumer.accept(index % width, index / width, (bits & PATHABLE) != 0);
+                }
+            }
+        }
+    }
+
+    private long tile(int x, int y) {
+        if (!inBounds(x, y)) return 0;
+        int index = index(x, y);
+        return tiles.get(index >>> 5) >>> ((index & 31) << 1) & 3;
+    }
+}
@@ -0,0 +1,90 @@
+package com.jchevertonwynne.structures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.nCopies;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Uniform grid of square cells for finding items near a point without visiting every item.
+ * Queries return every item in the cells overlapping a square around the point, in the order
+ * the items were added, leaving exact distance checks to the caller.
+ */
+public class SpatialIndex<T> {
+    private static class Entry<T> {
+        private final long sequence;
+        private final T item;
+
+        private Entry(long sequence, T item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final List<List<Entry<T>>> cells;
+    private long added;
+
+    public SpatialIndex(int width, int height, int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSize = cellSize;
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cells = new ArrayList<>(nCopies(columns * rows, null));
+    }
+
+    public void add(Coord position, T item) {
+        int cell = column(position.getX()) + row(position.getY()) * columns;
+        if (cells.get(cell) == null) {
+            cells.set(cell, new ArrayList<>());
+        }
+        cells.get(cell).add(new Entry<>(added++, item));
+    }
+
+    public void clear() {
+        for (List<Entry<T>> cell : cells) {
+            if (cell != null) cell.clear();
+        }
+        added = 0;
+    }
+
+    /**
+     * @return Every item that may lie within radius of centre, in the order they were added
+     */
+    public List<T> candidatesNear(Coord centre, int radius) {
+        int minColumn = column(centre.getX() - radius);
+        int maxColumn = column(centre.getX() + radius);
+        int minRow = row(centre.getY() - radius);
+        int maxRow = row(centre.getY() + radius);
+
+        List<Entry<T>> found = new ArrayList<>();
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                List<Entry<T>> cell = cells.get(column + row * columns);
+                if (cell != null) found.addAll(cell);
+            }
+        }
+        if (minColumn != maxColumn || minRow != maxRow) {
+            found.sort(comparingLong(entry -> entry.sequence));
+        }
+
+        List<T> items = new ArrayList<>(found.size());
+        for (Entry<T> entry : found) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    private int column(int x) {
+        return Math.max(0, Math.min(columns - 1, Math.floorDiv(x, cellSize)));
+    }
+
+    private int row(int y) {
+        return Math.max(0, Math.min(rows - 1, Math.floorDiv(y, cellSize)));
+    }
+}
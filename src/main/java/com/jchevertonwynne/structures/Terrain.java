@@ -0,0 +1,81 @@
+package com.jchevertonwynne.structures;
+
+import java.nio.LongBuffer;
+
+import static java.lang.String.format;
+
+/**
+ * The true world an agent explores: which tiles are pathable, packed one bit per tile.
+ * Tiles outside the terrain are walls.
+ */
+public class Terrain {
+    private final int width;
+    private final int height;
+    private final long[] pathable;
+
+    /**
+     * Create terrain of the given size that is all wall
+     */
+    public Terrain(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Terrain dimensions must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.pathable = new long[wordCount(width, height)];
+    }
+
+    /**
+     * Read terrain previously written with writeWords
+     */
+    public static Terrain readWords(int width, int height, LongBuffer words) {
+        Terrain terrain = new Terrain(width, height);
+        if (words.remaining() != terrain.pathable.length) {
+            throw new IllegalArgumentException(format(
+                    "Expected %d words for %dx%d terrain but found %d",
+                    terrain.pathable.length, width, height, words.remaining()
+            ));
+        }
+        words.get(terrain.pathable);
+        return terrain;
+    }
+
+    public void writeWords(LongBuffer words) {
+        words.put(pathable);
+    }
+
+    public static int wordCount(int width, int height) {
+        return (int) (((long) width * height + 63) >>> 6);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public boolean isPathable(int x, int y) {
+        if (!inBounds(x, y)) return false;
+        int index = y * width + x;
+        return (pathable[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void setPathable(int x, int y, boolean isPathable) {
+        if (!inBounds(x, y)) {
+            throw new IndexOutOfBoundsException(format("(%d, %d) is outside of the terrain", x, y));
+        }
+        int index = y * width + x;
+        if (isPathable) {
+            pathable[index >>> 6] |= 1L << index;
+        }
+        else {
+            pathable[index >>> 6] &= ~(1L << index);
+        }
+    }
+}
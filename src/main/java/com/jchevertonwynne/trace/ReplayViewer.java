@@ -0,0 +1,153 @@
+package com.jchevertonwynne.trace;
+
+import com.jchevertonwynne.display.DisplayFrame;
+import com.jchevertonwynne.display.DisplayPanel;
+import com.jchevertonwynne.display.Displayable;
+import com.jchevertonwynne.display.RenderLoop;
+import com.jchevertonwynne.simulation.VisibilityStrategy;
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.MapLoader;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Plays a recorded trace back in a DisplayFrame. Scans are redone from the recorded positions
+ * against the map, so nothing is pathed and playback runs as fast as it is drawn. Frames are
+ * drawn by a RenderLoop while the trace is read, as they are for a live simulation.
+ * <p>
+ * Usage: ReplayViewer trace [--ticksPerFrame=n] [--frameMillis=n]
+ */
+public class ReplayViewer implements TraceListener, Displayable {
+    private static final int KNOWN_PATH_COLOUR = new Color(102, 102, 51).getRGB();
+    private static final int KNOWN_WALL_COLOUR = new Color(255, 12, 127).getRGB();
+
+    private final TraceHeader header;
+    private final Terrain world;
+    private final VisibilityStrategy visibility;
+    private final OccupancyGrid discovered;
+    private final Coord[] positions;
+    private final Coord[] goals;
+    private int tick;
+
+    public ReplayViewer(TraceHeader header, Terrain world) {
+        this.header = header;
+        this.world = world;
+        this.visibility = header.getVisibilityType().getStrategy();
+        this.discovered = new OccupancyGrid(header.getWidth(), header.getHeight());
+        this.positions = new Coord[header.getAgentColours().size()];
+        this.goals = new Coord[positions.length];
+        Arrays.fill(positions, header.getStartPosition());
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public OccupancyGrid getDiscovered() {
+        return discovered;
+    }
+
+    public Coord getPosition(int agent) {
+        return positions[agent];
+    }
+
+    @Override
+    public void tick(int tick) {
+        this.tick = tick;
+    }
+
+    @Override
+    public void moved(int agent, int x, int y) {
+        positions[agent] = new Coord(x, y);
+    }
+
+    @Override
+    public void goalChosen(int agent, int x, int y) {
+        goals[agent] = new Coord(x, y);
+    }
+
+    @Override
+    public void stateChanged(int agent, int state) {
+    }
+
+    @Override
+    public void scanned(int agent, int x, int y) {
+        visibility.scan(world, x, y, header.getSightRadius(), (tileX, tileY, pathable) -> {
+            if (!discovered.isKnown(tileX, tileY)) discovered.set(tileX, tileY, pathable);
+        });
+    }
+
+    @Override
+    public void blacklisted(int agent, int x, int y) {
+    }
+
+    /**
+     * Draw discovered tiles, goals and agents over the map. Safe to call while the trace is being
+     * read, in which case the picture may be a few tiles behind.
+     */
+    @Override
+    public void display(BufferedImage image) {
+        discovered.forEachKnown((x, y, pathable) -> image.setRGB(x, y, pathable ? KNOWN_PATH_COLOUR : KNOWN_WALL_COLOUR));
+        Graphics graphics = image.getGraphics();
+        for (int agent = 0; agent < positions.length; agent++) {
+            graphics.setColor(header.getAgentColours().get(agent));
+            if (goals[agent] != null) {
+                graphics.drawLine(goals[agent].getX() - 3, goals[agent].getY(), goals[agent].getX() + 3, goals[agent].getY());
+                graphics.drawLine(goals[agent].getX(), goals[agent].getY() - 3, goals[agent].getX(), goals[agent].getY() + 3);
+            }
+            Coord position = positions[agent];
+            graphics.fillOval(position.getX() - 4, position.getY() - 4, 8, 8);
+            graphics.setColor(Color.BLACK);
+            graphics.drawOval(position.getX() - 4, position.getY() - 4, 8, 8);
+        }
+        graphics.dispose();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: ReplayViewer trace [--ticksPerFrame=n] [--frameMillis=n]");
+        }
+        int ticksPerFrame = intFlag(args, "--ticksPerFrame=", 10);
+        int frameMillis = intFlag(args, "--frameMillis=", 15);
+
+        try (TraceReader reader = new TraceReader(Paths.get(args[0]))) {
+            TraceHeader header = reader.getHeader();
+            File background = new File(header.getBackgroundName());
+            BufferedImage originalImage = ImageIO.read(background);
+            Terrain world = new MapLoader(header.getPathThreshold(), true).load(background, originalImage);
+            ReplayViewer viewer = new ReplayViewer(header, world);
+
+            DisplayPanel panel = new DisplayPanel(originalImage, viewer, Math.max(1, 1000 / frameMillis));
+            DisplayFrame frame = new DisplayFrame(panel);
+            RenderLoop renderLoop = panel.getRenderLoop();
+
+            boolean more = true;
+            while (more) {
+                for (int i = 0; i < ticksPerFrame && more; i++) {
+                    more = reader.readTick(viewer);
+                }
+                frame.setTitle("Tick " + viewer.getTick());
+                Thread.sleep(frameMillis);
+            }
+            renderLoop.close();
+            renderLoop.renderFrame();
+        }
+    }
+
+    private static int intFlag(String[] args, String flag, int defaultValue) {
+        return Arrays.stream(args)
+                .filter(arg -> arg.startsWith(flag))
+                .map(arg -> Integer.parseInt(arg.substring(flag.length())))
+                .findFirst()
+                .orElse(defaultValue);
+    }
+}
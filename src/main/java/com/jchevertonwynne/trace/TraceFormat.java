@@ -0,0 +1,36 @@
+package com.jchevertonwynne.trace;
+
+/**
+ * Layout of a trace file. A header is followed by records of a one byte type and fixed size
+ * fields, agents as shorts and coordinates as pairs of shorts:
+ * <pre>
+ * header  magic, version, header fields (see TraceHeader)
+ * TICK    int tick
+ * MOVE    agent, x, y
+ * GOAL    agent, x, y
+ * STATE   agent, byte state
+ * SCAN    agent, x, y
+ * BLACKLIST agent, x, y
+ * END
+ * </pre>
+ */
+final class TraceFormat {
+    static final int MAGIC = 0x53575452;
+    static final short VERSION = 2;
+
+    static final byte TICK = 0;
+    static final byte MOVE = 1;
+    static final byte GOAL = 2;
+    static final byte STATE = 3;
+    static final byte SCAN = 4;
+    static final byte BLACKLIST = 5;
+    static final byte END = 6;
+
+    /**
+     * Largest record, a type followed by three shorts
+     */
+    static final int MAX_RECORD = 7;
+
+    private TraceFormat() {
+    }
+}
@@ -0,0 +1,74 @@
+package com.jchevertonwynne.trace;
+
+import com.jchevertonwynne.simulation.VisibilityType;
+import com.jchevertonwynne.structures.Coord;
+import lombok.Value;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Everything needed to replay a trace without the simulation that produced it
+ */
+@Value
+public class TraceHeader {
+    String backgroundName;
+    int pathThreshold;
+    int width;
+    int height;
+    Coord startPosition;
+    int sightRadius;
+    VisibilityType visibilityType;
+    long seed;
+    List<Color> agentColours;
+
+    void write(ByteBuffer buffer) {
+        byte[] name = backgroundName.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(TraceFormat.MAGIC);
+        buffer.putShort(TraceFormat.VERSION);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putShort((short) pathThreshold);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.putShort((short) startPosition.getX());
+        buffer.putShort((short) startPosition.getY());
+        buffer.putShort((short) sightRadius);
+        buffer.put((byte) visibilityType.ordinal());
+        buffer.putLong(seed);
+        buffer.putShort((short) agentColours.size());
+        agentColours.forEach(colour -> buffer.putInt(colour.getRGB()));
+    }
+
+    int size() {
+        return 35 + backgroundName.getBytes(StandardCharsets.UTF_8).length + 4 * agentColours.size();
+    }
+
+    static TraceHeader read(ByteBuffer buffer) {
+        int magic = buffer.getInt();
+        short version = buffer.getShort();
+        if (magic != TraceFormat.MAGIC || version != TraceFormat.VERSION) {
+            throw new IllegalArgumentException(format("Not a version %d trace file", TraceFormat.VERSION));
+        }
+        byte[] name = new byte[buffer.getShort()];
+        buffer.get(name);
+        int pathThreshold = buffer.getShort();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        Coord start = new Coord(buffer.getShort(), buffer.getShort());
+        int sightRadius = buffer.getShort();
+        VisibilityType visibilityType = VisibilityType.values()[buffer.get()];
+        long seed = buffer.getLong();
+        int agents = buffer.getShort();
+        List<Color> colours = new ArrayList<>(agents);
+        for (int i = 0; i < agents; i++) {
+            colours.add(new Color(buffer.getInt()));
+        }
+        return new TraceHeader(new String(name, StandardCharsets.UTF_8), pathThreshold, width, height, start, sightRadius, visibilityType, seed, colours);
+    }
+}
@@ -0,0 +1,24 @@
+package com.jchevertonwynne.trace;
+
+/**
+ * Receives the events of a simulation trace, either as they are recorded or as they are read back
+ */
+public interface TraceListener {
+    /**
+     * Start of a tick, all events until the next tick belong to it
+     */
+    void tick(int tick);
+
+    void moved(int agent, int x, int y);
+
+    void goalChosen(int agent, int x, int y);
+
+    /**
+     * @param state Ordinal of the agent's new state
+     */
+    void stateChanged(int agent, int state);
+
+    void scanned(int agent, int x, int y);
+
+    void blacklisted(int agent, int x, int y);
+}
@@ -0,0 +1,64 @@
+package com.jchevertonwynne.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads a trace file back a tick at a time, memory mapping it rather than copying it in
+ */
+public class TraceReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final TraceHeader header;
+
+    public TraceReader(Path path) throws IOException {
+        channel = FileChannel.open(path, READ);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        header = TraceHeader.read(buffer);
+    }
+
+    public TraceHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Pass every event of the next tick to a listener
+     * @return false once the end of the trace has been reached
+     */
+    public boolean readTick(TraceListener listener) {
+        if (!buffer.hasRemaining() || buffer.get(buffer.position()) == TraceFormat.END) {
+            return false;
+        }
+        if (buffer.get() != TraceFormat.TICK) {
+            throw new IllegalStateException(format("Expected a tick at byte %d of trace", buffer.position() - 1));
+        }
+        listener.tick(buffer.getInt());
+
+        while (buffer.hasRemaining()) {
+            byte type = buffer.get(buffer.position());
+            if (type == TraceFormat.TICK || type == TraceFormat.END) break;
+            buffer.get();
+            int agent = buffer.getShort();
+            switch (type) {
+                case TraceFormat.MOVE: listener.moved(agent, buffer.getShort(), buffer.getShort()); break;
+                case TraceFormat.GOAL: listener.goalChosen(agent, buffer.getShort(), buffer.getShort()); break;
+                case TraceFormat.STATE: listener.stateChanged(agent, buffer.get()); break;
+                case TraceFormat.SCAN: listener.scanned(agent, buffer.getShort(), buffer.getShort()); break;
+                case TraceFormat.BLACKLIST: listener.blacklisted(agent, buffer.getShort(), buffer.getShort()); break;
+                default: throw new IllegalStateException(format("Unknown trace record %d at byte %d", type, buffer.position() - 3));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
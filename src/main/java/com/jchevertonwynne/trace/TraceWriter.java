@@ -0,0 +1,173 @@
+package com.jchevertonwynne.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Records a trace to a file. Records are packed into buffers on the simulation thread and full
+ * buffers are handed to a background thread that writes them out, so the simulation only waits
+ * on disk if it gets several buffers ahead.
+ */
+public class TraceWriter implements TraceListener, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TraceWriter.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BUFFERS = 4;
+    private static final ByteBuffer FINISHED = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> toWrite = new ArrayBlockingQueue<>(BUFFERS + 1);
+    private final BlockingQueue<ByteBuffer> spare = new ArrayBlockingQueue<>(BUFFERS);
+    private final Thread writer;
+    private volatile IOException failure;
+    private ByteBuffer current;
+    private boolean closed;
+
+    public TraceWriter(Path path, TraceHeader header) throws IOException {
+        channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING);
+        for (int i = 1; i < BUFFERS; i++) {
+            spare.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+        current = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, header.size()));
+        header.write(current);
+
+        writer = new Thread(this::writeBuffers, "trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void tick(int tick) {
+        reserve(5).put(TraceFormat.TICK).putInt(tick);
+    }
+
+    @Override
+    public void moved(int agent, int x, int y) {
+        agentRecord(TraceFormat.MOVE, agent, x, y);
+    }
+
+    @Override
+    public void goalChosen(int agent, int x, int y) {
+        agentRecord(TraceFormat.GOAL, agent, x, y);
+    }
+
+    @Override
+    public void stateChanged(int agent, int state) {
+        reserve(4).put(TraceFormat.STATE).putShort((short) agent).put((byte) state);
+    }
+
+    @Override
+    public void scanned(int agent, int x, int y) {
+        agentRecord(TraceFormat.SCAN, agent, x, y);
+    }
+
+    @Override
+    public void blacklisted(int agent, int x, int y) {
+        agentRecord(TraceFormat.BLACKLIST, agent, x, y);
+    }
+
+    private void agentRecord(byte type, int agent, int x, int y) {
+        reserve(TraceFormat.MAX_RECORD).put(type).putShort((short) agent).putShort((short) x).putShort((short) y);
+    }
+
+    private ByteBuffer reserve(int bytes) {
+        if (closed) {
+            throw new IllegalStateException("Trace has already been closed");
+        }
+        if (current.remaining() < bytes) {
+            handOff(current);
+            try {
+                current = spare.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the trace writer", e);
+            }
+            checkFailure();
+        }
+        return current;
+    }
+
+    private void handOff(ByteBuffer buffer) {
+        checkFailure();
+        buffer.flip();
+        try {
+            toWrite.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the trace writer", e);
+        }
+    }
+
+    /**
+     * Once a write fails the rest of the buffers are still handed back unwritten, so the
+     * simulation thread is never left waiting for one and sees the failure on its next hand off
+     */
+    private void writeBuffers() {
+        try {
+            while (true) {
+                ByteBuffer buffer = toWrite.take();
+                if (buffer == FINISHED) return;
+                if (failure == null) write(buffer);
+                buffer.clear();
+                spare.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            failure = e;
+            logger.error("Failed to write trace", e);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Trace could not be written", failure);
+        }
+    }
+
+    /**
+     * Write an end marker and wait for every buffered record to reach the file. The writer
+     * thread is stopped and the file closed even if the trace could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            reserve(1).put(TraceFormat.END);
+            handOff(current);
+        } finally {
+            closed = true;
+            try {
+                toWrite.put(FINISHED);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while finishing trace", e);
+            } finally {
+                channel.close();
+            }
+        }
+        checkFailure();
+    }
+}
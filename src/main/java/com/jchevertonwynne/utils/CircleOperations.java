@@ -1,12 +1,14 @@
 package com.jchevertonwynne.utils;
 
 import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static java.lang.Integer.compare;
 import static java.lang.Math.PI;
@@ -18,8 +20,10 @@ import static java.util.stream.Collectors.toSet;
 
 public class CircleOperations {
     private static final Hashtable<Integer, Set<Coord>> circleEdges = new Hashtable<>();
-    private static final Hashtable<Coord, List<Coord>> centerRays = new Hashtable<>();
     private static final Hashtable<Integer, List<List<Coord>>> circleRays = new Hashtable<>();
+    private static final int CACHED_RAY_REACH = 64;
+    private static final int CACHED_RAY_SIDE = 2 * CACHED_RAY_REACH + 1;
+    private static final AtomicReferenceArray<int[]> offsetRays = new AtomicReferenceArray<>(CACHED_RAY_SIDE * CACHED_RAY_SIDE);
 
     private static Set<Coord> calculateArc(int size) {
         Set<Coord> result = new HashSet<>();
@@ -62,31 +66,84 @@ public class CircleOperations {
     }
 
     public static List<Coord> calculateRay(Coord start, Coord end) {
-        Coord diff = start.difference(end);
-        return calculateRay(diff).stream()
-                .map(start::combine)
-                .collect(toList());
+        int[] ray = rayOffsets(end.getX() - start.getX(), end.getY() - start.getY());
+        List<Coord> result = new ArrayList<>(ray.length / 2);
+        for (int step = 0; step < ray.length; step += 2) {
+            result.add(new Coord(start.getX() + ray[step], start.getY() + ray[step + 1]));
+        }
+        return result;
     }
 
     public static List<Coord> calculateRay(Coord end) {
-        return centerRays.computeIfAbsent(end, coord -> {
-            Coord start = new Coord(0, 0);
-            List<Coord> result = new LinkedList<>();
-            double targetAngle = angleBetween(start, end);
-            int dx = compare(end.getX() - start.getX(), 0);
-            int dy = compare(end.getY() - start.getY(), 0);
-
-            Coord current = start;
-            while (!current.equals(end)) {
-                int cx = current.getX();
-                int cy = current.getY();
-                Coord a = dx != 0 ? new Coord(cx + dx, cy) : null;
-                Coord b = dy != 0 ? new Coord(cx, cy + dy) : null;
-                current = mostSimilarAngle(a, b, end, targetAngle);
-                result.add(current);
+        return calculateRay(new Coord(0, 0), end);
+    }
+
+    /**
+     * Walk the same ray as calculateRay without creating any objects
+     * @return Whether every tile on the ray from (fromX, fromY) to (toX, toY) is known to be
+     * pathable, the start excluded
+     */
+    public static boolean isRayPathable(KnowledgeGrid world, int fromX, int fromY, int toX, int toY) {
+        int[] ray = rayOffsets(toX - fromX, toY - fromY);
+        for (int step = 0; step < ray.length; step += 2) {
+            if (!world.isPathable(fromX + ray[step], fromY + ray[step + 1])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Tiles of the ray from the origin to (endX, endY) as x, y pairs, the origin excluded.
+     * Rays within CACHED_RAY_REACH of the origin on both axes are only traced once.
+     */
+    private static int[] rayOffsets(int endX, int endY) {
+        if (abs(endX) > CACHED_RAY_REACH || abs(endY) > CACHED_RAY_REACH) {
+            return traceRay(endX, endY);
+        }
+        int slot = (endY + CACHED_RAY_REACH) * CACHED_RAY_SIDE + endX + CACHED_RAY_REACH;
+        int[] ray = offsetRays.get(slot);
+        if (ray == null) {
+            ray = traceRay(endX, endY);
+            offsetRays.set(slot, ray);
+        }
+        return ray;
+    }
+
+    /**
+     * Step one tile at a time from the origin, each time taking whichever of the horizontal and
+     * vertical steps leaves the end at the angle closest to that of the whole ray
+     */
+    private static int[] traceRay(int endX, int endY) {
+        double targetAngle = atan2(endY, endX);
+        int dx = compare(endX, 0);
+        int dy = compare(endY, 0);
+        int[] ray = new int[2 * (abs(endX) + abs(endY))];
+        int x = 0;
+        int y = 0;
+        for (int step = 0; step < ray.length; step += 2) {
+            if (stepsHorizontally(x, y, dx, dy, endX, endY, targetAngle)) {
+                x += dx;
             }
-            return result;
-        });
+            else {
+                y += dy;
+            }
+            ray[step] = x;
+            ray[step + 1] = y;
+        }
+        return ray;
+    }
+
+    /**
+     * The choice mostSimilarAngle makes between (x + dx, y) and (x, y + dy)
+     */
+    private static boolean stepsHorizontally(int x, int y, int dx, int dy, int endX, int endY, double targetAngle) {
+        if (dx == 0) return false;
+        if (x + dx == endX && y == endY) return true;
+        if (dy == 0) return true;
+        if (x == endX && y + dy == endY) return false;
+
+        double horizontalDifference = angleDifference(atan2(endY - y, endX - x - dx), targetAngle);
+        double verticalDifference = angleDifference(atan2(endY - y - dy, endX - x), targetAngle);
+        return horizontalDifference < verticalDifference;
     }
 
     public static List<List<Coord>> generateCircleRays(Coord centre, int size) {
@@ -122,20 +179,14 @@ public class CircleOperations {
             return b;
         }
 
-        double aToGoal = angleBetween(a, goal);
-        double bToGoal = angleBetween(b, goal);
-
-        double aAngleDifference = abs(aToGoal - targetAngle);
-        double bAngleDifference = abs(bToGoal - targetAngle);
-
-        if (aAngleDifference > PI) {
-            aAngleDifference = 2 * PI - aAngleDifference;
-        }
-
-        if (bAngleDifference > PI) {
-            bAngleDifference = 2 * PI - bAngleDifference;
-        }
+        double aAngleDifference = angleDifference(angleBetween(a, goal), targetAngle);
+        double bAngleDifference = angleDifference(angleBetween(b, goal), targetAngle);
 
         return aAngleDifference < bAngleDifference ? a : b;
     }
+
+    private static double angleDifference(double angle, double targetAngle) {
+        double difference = abs(angle - targetAngle);
+        return difference > PI ? 2 * PI - difference : difference;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.jchevertonwynne.utils;
+
+import java.util.NoSuchElementException;
+
+/**
+ * FIFO queue of primitive ints backed by a growable ring buffer
+ */
+public class IntQueue {
+    private int[] elements;
+    private int head;
+    private int size;
+
+    public IntQueue() {
+        this(64);
+    }
+
+    public IntQueue(int capacity) {
+        elements = new int[Math.max(capacity, 1)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public void add(int value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) % elements.length] = value;
+        size++;
+    }
+
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("Queue is empty");
+        }
+        int value = elements[head];
+        head = (head + 1) % elements.length;
+        size--;
+        return value;
+    }
+
+    private void grow() {
+        int[] grown = new int[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[(head + i) % elements.length];
+        }
+        elements = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,203 @@
+package com.jchevertonwynne.utils;
+
+import com.jchevertonwynne.structures.Terrain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Turns map images into Terrain. A pixel is pathable when every channel, alpha included, is at
+ * least the path threshold, so the default of 255 accepts only opaque white.
+ * <p>
+ * The packed terrain is cached next to the image as {@code <image>.terrain} and memory mapped
+ * on later loads, as long as the image and threshold are unchanged.
+ */
+public class MapLoader {
+    private static final Logger logger = LoggerFactory.getLogger(MapLoader.class);
+
+    private static final int MAGIC = 0x54455252;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+
+    private final int pathThreshold;
+    private final boolean cache;
+
+    public MapLoader(int pathThreshold, boolean cache) {
+        if (pathThreshold < 0 || pathThreshold > 255) {
+            throw new IllegalArgumentException("Path threshold must be between 0 and 255");
+        }
+        this.pathThreshold = pathThreshold;
+        this.cache = cache;
+    }
+
+    public static MapLoader fromConfig(SimulationConfig config) {
+        return new MapLoader(config.getPathThreshold(), config.isMapCache());
+    }
+
+    public Terrain load(File image) throws IOException {
+        return load(image, null);
+    }
+
+    /**
+     * @param decoded The image already read from file, used instead of decoding it again if the
+     *                cache cannot be used. May be null.
+     */
+    public Terrain load(File image, BufferedImage decoded) throws IOException {
+        if (!image.isFile()) {
+            throw new IllegalArgumentException("No map image at " + image);
+        }
+        Path cacheFile = cacheFile(image);
+        if (cache) {
+            Terrain cached = readCache(cacheFile, image);
+            if (cached != null) return cached;
+        }
+
+        Terrain terrain = fromImage(decoded != null ? decoded : ImageIO.read(image));
+        if (cache) {
+            writeCache(cacheFile, image, terrain);
+        }
+        return terrain;
+    }
+
+    /**
+     * Classify every pixel of an image, reading straight from the raster for 8 bit sRGB images
+     */
+    public Terrain fromImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Terrain terrain = new Terrain(width, height);
+
+        if (isInterleavedRgb(image)) {
+            PixelInterleavedSampleModel model = (PixelInterleavedSampleModel) image.getSampleModel();
+            byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            int[] offsets = model.getBandOffsets();
+            int pixelStride = model.getPixelStride();
+            int scanlineStride = model.getScanlineStride();
+            int translateX = image.getRaster().getSampleModelTranslateX();
+            int translateY = image.getRaster().getSampleModelTranslateY();
+            for (int y = 0; y < height; y++) {
+                int pixel = (y - translateY) * scanlineStride - translateX * pixelStride;
+                for (int x = 0; x < width; x++, pixel += pixelStride) {
+                    boolean pathable = true;
+                    for (int offset : offsets) {
+                        if ((data[pixel + offset] & 0xFF) < pathThreshold) {
+                            pathable = false;
+                            break;
+                        }
+                    }
+                    if (pathable) terrain.setPathable(x, y, true);
+                }
+            }
+        }
+        else {
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    if (isPath(row[x])) terrain.setPathable(x, y, true);
+                }
+            }
+        }
+        return terrain;
+    }
+
+    private boolean isPath(int argb) {
+        return (argb >>> 24) >= pathThreshold
+                && (argb >> 16 & 0xFF) >= pathThreshold
+                && (argb >> 8 & 0xFF) >= pathThreshold
+                && (argb & 0xFF) >= pathThreshold;
+    }
+
+    /**
+     * Opaque 8 bit RGB images can be read band by band without any colour conversion. Images
+     * without alpha count as opaque, as getRGB would report them.
+     */
+    private static boolean isInterleavedRgb(BufferedImage image) {
+        return image.getSampleModel() instanceof PixelInterleavedSampleModel
+                && image.getRaster().getDataBuffer() instanceof DataBufferByte
+                && image.getColorModel() instanceof ComponentColorModel
+                && image.getColorModel().getColorSpace().isCS_sRGB()
+                && image.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_RGB
+                && image.getSampleModel().getNumBands() >= 3
+                && !image.getColorModel().isAlphaPremultiplied()
+                && image.getSampleModel().getSampleSize(0) == 8;
+    }
+
+    private static Path cacheFile(File image) {
+        return image.toPath().resolveSibling(image.getName() + ".terrain");
+    }
+
+    private Terrain readCache(Path cacheFile, File image) {
+        if (!Files.isRegularFile(cacheFile)) return null;
+        try (FileChannel channel = FileChannel.open(cacheFile, READ)) {
+            if (channel.size() < HEADER_BYTES) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC
+                    || buffer.getInt() != VERSION
+                    || buffer.getInt() != pathThreshold
+                    || buffer.getLong() != image.length()
+                    || buffer.getLong() != image.lastModified()) {
+                return null;
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            buffer.position(HEADER_BYTES);
+            return Terrain.readWords(width, height, buffer.asLongBuffer());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable map cache {}", cacheFile, e);
+            return null;
+        }
+    }
+
+    private void writeCache(Path cacheFile, File image, Terrain terrain) {
+        int words = Terrain.wordCount(terrain.getWidth(), terrain.getHeight());
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 8 * words);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(pathThreshold)
+                .putLong(image.length())
+                .putLong(image.lastModified())
+                .putInt(terrain.getWidth())
+                .putInt(terrain.getHeight());
+        buffer.position(HEADER_BYTES);
+        terrain.writeWords(buffer.asLongBuffer());
+        buffer.rewind();
+
+        Path partial = null;
+        try {
+            partial = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), image.getName(), ".partial");
+            try (FileChannel channel = FileChannel.open(partial, WRITE, CREATE, TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(partial, cacheFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not cache map {}", cacheFile, e);
+            try {
+                if (partial != null) Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
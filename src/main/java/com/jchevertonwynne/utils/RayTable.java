@@ -0,0 +1,113 @@
+package com.jchevertonwynne.utils;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every circle ray of a radius flattened into primitive offset arrays. Steps of ray r are
+ * found at indices rayStart[r] until rayStart[r + 1] of dx and dy, relative to the centre,
+ * so rays can be walked from any centre without creating any objects.
+ */
+public class RayTable {
+    private static final Map<Integer, RayTable> tables = new ConcurrentHashMap<>();
+
+    private final int radius;
+    private final int[] rayStart;
+    private final int[] dx;
+    private final int[] dy;
+    private final int[] offsetId;
+    private final int distinctOffsets;
+    private final ThreadLocal<int[]> seenMarks;
+
+    private RayTable(int radius, List<List<Coord>> rays) {
+        this.radius = radius;
+        int steps = rays.stream().mapToInt(List::size).sum();
+        rayStart = new int[rays.size() + 1];
+        dx = new int[steps];
+        dy = new int[steps];
+        offsetId = new int[steps];
+
+        Map<Coord, Integer> ids = new HashMap<>();
+        int step = 0;
+        for (int ray = 0; ray < rays.size(); ray++) {
+            rayStart[ray] = step;
+            for (Coord offset : rays.get(ray)) {
+                dx[step] = offset.getX();
+                dy[step] = offset.getY();
+                offsetId[step] = ids.computeIfAbsent(offset, o -> ids.size());
+                step++;
+            }
+        }
+        rayStart[rays.size()] = step;
+        distinctOffsets = ids.size();
+        // last slot holds the generation the other marks are compared against
+        seenMarks = ThreadLocal.withInitial(() -> new int[distinctOffsets + 1]);
+    }
+
+    public static RayTable forRadius(int radius) {
+        return tables.computeIfAbsent(radius, r -> new RayTable(r, CircleOperations.generateCircleRays(new Coord(0, 0), r)));
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    public int getRayCount() {
+        return rayStart.length - 1;
+    }
+
+    public int rayStart(int ray) {
+        return rayStart[ray];
+    }
+
+    public int rayEnd(int ray) {
+        return rayStart[ray + 1];
+    }
+
+    public int dx(int step) {
+        return dx[step];
+    }
+
+    public int dy(int step) {
+        return dy[step];
+    }
+
+    /**
+     * @return Number of different tiles covered by all rays together
+     */
+    public int getDistinctOffsets() {
+        return distinctOffsets;
+    }
+
+    /**
+     * Count the distinct tiles visible from a centre, treating unknown tiles as open. Each ray
+     * stops at the first tile known to be a wall.
+     */
+    public int countVisible(KnowledgeGrid world, int centreX, int centreY) {
+        int[] marks = seenMarks.get();
+        int generation = ++marks[distinctOffsets];
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            generation = marks[distinctOffsets] = 1;
+        }
+
+        int count = 0;
+        for (int ray = 0; ray < getRayCount(); ray++) {
+            for (int step = rayStart[ray]; step < rayStart[ray + 1]; step++) {
+                if (world.isWall(centreX + dx[step], centreY + dy[step])) break;
+                int id = offsetId[step];
+                if (marks[id] != generation) {
+                    marks[id] = generation;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,165 @@
+package com.jchevertonwynne.utils;
+
+import com.jchevertonwynne.pathing.PathPlannerType;
+import com.jchevertonwynne.simulation.ReturnPathing;
+import com.jchevertonwynne.simulation.VisibilityType;
+import com.jchevertonwynne.structures.Coord;
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+
+import static java.lang.String.format;
+
+/**
+ * Immutable settings for a single simulation. Instances are passed down to every component
+ * that needs them, so differently configured simulations can share a JVM.
+ * <p>
+ * Properties files and command line flags use the field names as keys, e.g.
+ * <pre>
+ * backgroundName=areas/mazeSmall.png
+ * startPosition=238,288
+ * agentCount=5
+ * </pre>
+ * or {@code --agentCount=5 --config=run.properties} on the command line.
+ */
+@Value
+@Builder(toBuilder = true)
+public class SimulationConfig {
+    public static final SimulationConfig DEFAULT = builder().build();
+
+    @Builder.Default String backgroundName = "areas/officeLayout.png";
+    @Builder.Default Coord startPosition = new Coord(400, 400);
+    /**
+     * Lowest value of every colour channel, alpha included, for a map pixel to count as path
+     */
+    @Builder.Default int pathThreshold = 255;
+    @Builder.Default boolean mapCache = true;
+
+    @Builder.Default boolean display = true;
+    @Builder.Default boolean distanceDisplay = false;
+    @Builder.Default int frameRate = 30;
+    @Builder.Default boolean uniformAgentColour = true;
+
+    @Builder.Default int dfsMaxTurnsWithoutFind = 400;
+    @Builder.Default int dfsReturnSoftCap = 400;
+
+    @Builder.Default boolean globalKnowledge = false;
+    @Builder.Default boolean employDrops = false;
+    @Builder.Default int agentCount = 10;
+
+    @Builder.Default int sightRadius = 30;
+    @Builder.Default int broadcastRadius = 60;
+    @Builder.Default VisibilityType visibilityType = VisibilityType.RAY_CAST;
+    @Builder.Default ReturnPathing returnPathing = ReturnPathing.DISTANCE_FIELD;
+    /**
+     * Grid search for hierarchical paths home too short to be worth planning over cluster entrances
+     */
+    @Builder.Default PathPlannerType pathPlanner = PathPlannerType.ASTAR;
+
+    @Builder.Default int simulationThreads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Seed for agent creation, or null for a different simulation each run
+     */
+    @Builder.Default Long seed = null;
+    /**
+     * Check every incremental distance update against a full search, for debugging
+     */
+    @Builder.Default boolean verifyDistances = false;
+    /**
+     * File to record a binary trace of the simulation to for later replay, or null for none
+     */
+    @Builder.Default String traceFile = null;
+    /**
+     * Path to write timings of each phase of a tick to, or null to not profile. Snapshots are
+     * written to this path with .csv appended and the summary of the run with .json appended.
+     */
+    @Builder.Default String profileFile = null;
+    /**
+     * Ticks covered by each profile snapshot
+     */
+    @Builder.Default int profileInterval = 100;
+
+    /**
+     * Build a config from command line flags of the form --key=value. A --config=file flag
+     * loads a properties file first, which the remaining flags then override.
+     */
+    public static SimulationConfig fromArgs(String[] args) throws IOException {
+        Properties properties = new Properties();
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException(format("Expected an argument of the form --key=value but found '%s'", arg));
+            }
+            String key = arg.substring(2, split);
+            String value = arg.substring(split + 1);
+            if (key.equals("config")) {
+                properties.putAll(load(new File(value)));
+            }
+            else {
+                overrides.setProperty(key, value);
+            }
+        }
+        properties.putAll(overrides);
+        return DEFAULT.with(properties);
+    }
+
+    public static Properties load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * @return A copy of this config with every setting in properties applied
+     */
+    public SimulationConfig with(Properties properties) {
+        SimulationConfigBuilder builder = toBuilder();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            switch (key) {
+                case "backgroundName": builder.backgroundName(value); break;
+                case "startPosition": builder.startPosition(parseCoord(value)); break;
+                case "pathThreshold": builder.pathThreshold(Integer.parseInt(value)); break;
+                case "mapCache": builder.mapCache(Boolean.parseBoolean(value)); break;
+                case "display": builder.display(Boolean.parseBoolean(value)); break;
+                case "distanceDisplay": builder.distanceDisplay(Boolean.parseBoolean(value)); break;
+                case "frameRate": builder.frameRate(Integer.parseInt(value)); break;
+                case "uniformAgentColour": builder.uniformAgentColour(Boolean.parseBoolean(value)); break;
+                case "dfsMaxTurnsWithoutFind": builder.dfsMaxTurnsWithoutFind(Integer.parseInt(value)); break;
+                case "dfsReturnSoftCap": builder.dfsReturnSoftCap(Integer.parseInt(value)); break;
+                case "globalKnowledge": builder.globalKnowledge(Boolean.parseBoolean(value)); break;
+                case "employDrops": builder.employDrops(Boolean.parseBoolean(value)); break;
+                case "agentCount": builder.agentCount(Integer.parseInt(value)); break;
+                case "sightRadius": builder.sightRadius(Integer.parseInt(value)); break;
+                case "broadcastRadius": builder.broadcastRadius(Integer.parseInt(value)); break;
+                case "visibilityType": builder.visibilityType(VisibilityType.valueOf(value.toUpperCase())); break;
+                case "returnPathing": builder.returnPathing(ReturnPathing.valueOf(value.toUpperCase())); break;
+                case "pathPlanner": builder.pathPlanner(PathPlannerType.valueOf(value.toUpperCase())); break;
+                case "simulationThreads": builder.simulationThreads(Integer.parseInt(value)); break;
+                case "seed": builder.seed(value.isEmpty() ? null : Long.parseLong(value)); break;
+                case "verifyDistances": builder.verifyDistances(Boolean.parseBoolean(value)); break;
+                case "traceFile": builder.traceFile(value.isEmpty() ? null : value); break;
+                case "profileFile": builder.profileFile(value.isEmpty() ? null : value); break;
+                case "profileInterval": builder.profileInterval(Integer.parseInt(value)); break;
+                default: throw new IllegalArgumentException(format("Unknown simulation setting '%s'", key));
+            }
+        }
+        return builder.build();
+    }
+
+    public static Coord parseCoord(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException(format("Expected a coordinate of the form x,y but found '%s'", value));
+        }
+        return new Coord(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+}
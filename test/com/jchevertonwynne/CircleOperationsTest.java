@@ -1,9 +1,11 @@
 package com.jchevertonwynne;
 
 import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
 import com.jchevertonwynne.utils.CircleOperations;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -11,6 +13,8 @@ import java.util.Set;
 import static java.lang.Math.PI;
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CircleOperationsTest {
     @Test
@@ -123,6 +127,48 @@ class CircleOperationsTest {
         assertEquals(expected, result);
     }
 
+    @Test
+    public void shouldTraceRayAsMostSimilarAngleSteps() {
+        Coord origin = new Coord(0, 0);
+        for (int x = -70; x <= 70; x += 3) {
+            for (int y = -70; y <= 70; y += 5) {
+                Coord end = new Coord(x, y);
+                double targetAngle = CircleOperations.angleBetween(origin, end);
+                int dx = Integer.compare(x, 0);
+                int dy = Integer.compare(y, 0);
+
+                List<Coord> expected = new ArrayList<>();
+                Coord current = origin;
+                while (!current.equals(end)) {
+                    Coord a = dx != 0 ? new Coord(current.getX() + dx, current.getY()) : null;
+                    Coord b = dy != 0 ? new Coord(current.getX(), current.getY() + dy) : null;
+                    current = CircleOperations.mostSimilarAngle(a, b, end, targetAngle);
+                    expected.add(current);
+                }
+
+                assertEquals(expected, CircleOperations.calculateRay(end));
+            }
+        }
+    }
+
+    @Test
+    public void shouldCheckRayIsPathable() {
+        OccupancyGrid world = new OccupancyGrid(10, 10);
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                world.set(x, y, true);
+            }
+        }
+        Coord start = new Coord(1, 2);
+        Coord end = new Coord(8, 6);
+        assertTrue(CircleOperations.isRayPathable(world, start.getX(), start.getY(), end.getX(), end.getY()));
+
+        Coord blocking = CircleOperations.calculateRay(start, end).get(4);
+        world.set(blocking, false);
+        assertFalse(CircleOperations.isRayPathable(world, start.getX(), start.getY(), end.getX(), end.getY()));
+        assertTrue(CircleOperations.isRayPathable(world, start.getX(), start.getY(), start.getX(), start.getY()));
+    }
+
     private static class AngleResult {
         private Coord a;
         private Coord b;
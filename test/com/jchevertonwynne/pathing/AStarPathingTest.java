@@ -1,20 +1,23 @@
 package com.jchevertonwynne.pathing;
 
 import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.KnowledgeGrid;
+import com.jchevertonwynne.structures.OccupancyGrid;
 import org.junit.jupiter.api.Test;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class AStarPathingTest {
 
     @Test
     public void shouldReturnShortestRoute() {
-        Map<Coord, Boolean> world = testWorld();
+        OccupancyGrid world = testWorld();
 
         List<Coord> resultPath1 = AStarPathing.calculatePath(
                 new Coord(2, 1),
@@ -31,20 +34,60 @@ class AStarPathingTest {
         assertThat(resultPath2, hasSize(13));
     }
 
-    private Map<Coord, Boolean> testWorld() {
-        Map<Coord, Boolean> world = new HashMap<>();
+    @Test
+    public void shouldReturnConnectedPathAcrossGridSizes() {
+        AStarPathing pathing = new AStarPathing();
+        assertThat(pathing.findPath(new Coord(2, 1), new Coord(8, 7), testWorld()), hasSize(12));
+
+        OccupancyGrid open = new OccupancyGrid(40, 30);
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 30; j++) {
+                open.set(new Coord(i, j), true);
+            }
+        }
+        Coord start = new Coord(1, 2);
+        List<Coord> path = pathing.findPath(start, new Coord(35, 27), open);
+        assertThat(path, hasSize(59));
+        assertConnected(open, start, new Coord(35, 27), path);
+
+        assertThat(pathing.findPath(new Coord(3, 6), new Coord(7, 3), testWorld()), hasSize(13));
+    }
+
+    @Test
+    public void shouldRejectUnreachableDestination() {
+        OccupancyGrid world = testWorld();
+        world.set(new Coord(8, 7), false);
+        assertThrows(IllegalArgumentException.class, () -> AStarPathing.calculatePath(new Coord(2, 1), new Coord(8, 7), world));
+    }
+
+    /**
+     * Check that path steps between cardinal neighbours over pathable tiles, from start to
+     * destination
+     */
+    static void assertConnected(KnowledgeGrid world, Coord start, Coord destination, List<Coord> path) {
+        Coord previous = start;
+        for (Coord step : path) {
+            assertTrue(world.isPathable(step));
+            assertEquals(1, Math.abs(step.getX() - previous.getX()) + Math.abs(step.getY() - previous.getY()));
+            previous = step;
+        }
+        assertEquals(destination, previous);
+    }
+
+    static OccupancyGrid testWorld() {
+        OccupancyGrid world = new OccupancyGrid(10, 10);
         for (int i = 0; i < 10; i++) {
             for (int j = 0; j < 10; j++) {
-                world.put(new Coord(i, j), !((i % 9 == 0) || (j % 9 == 0)));
+                world.set(new Coord(i, j), !((i % 9 == 0) || (j % 9 == 0)));
             }
         }
 
         for (int i = 2; i < 8; i++) {
-            world.put(new Coord(i, 5), false);
+            world.set(new Coord(i, 5), false);
         }
 
         for (int i = 2; i < 8; i++) {
-            world.put(new Coord(5, i), false);
+            world.set(new Coord(5, i), false);
         }
 
         return world;
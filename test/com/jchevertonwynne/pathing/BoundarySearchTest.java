@@ -0,0 +1,75 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.structures.BoundarySearchResult;
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.FrontierSet;
+import com.jchevertonwynne.structures.Move;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import com.jchevertonwynne.utils.SimulationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundarySearchTest {
+    @Test
+    public void shouldReturnPathsMatchingMoveDistances() {
+        OccupancyGrid world = knownRoom();
+        Coord start = new Coord(3, 3);
+        BoundarySearchResult result = BoundarySearch.calculateBoundaryTiles(start, world, new FrontierSet(world), Set.of(), SimulationConfig.DEFAULT);
+
+        assertFalse(result.getLegalMoves().isEmpty());
+        for (Move move : result.getLegalMoves()) {
+            List<Coord> path = result.pathTo(move.getTile());
+            assertEquals(move.getDistance() - 1, path.size());
+            AStarPathingTest.assertConnected(world, start, move.getTile(), path);
+            assertEquals(path.size(), AStarPathing.calculatePath(start, move.getTile(), world).size());
+        }
+    }
+
+    @Test
+    public void shouldRejectPathsFromStaleSearches() {
+        OccupancyGrid world = knownRoom();
+        FrontierSet frontier = new FrontierSet(world);
+        BoundarySearchResult first = BoundarySearch.calculateBoundaryTiles(new Coord(3, 3), world, frontier, Set.of(), SimulationConfig.DEFAULT);
+        BoundarySearch.calculateBoundaryTiles(new Coord(4, 4), world, frontier, Set.of(), SimulationConfig.DEFAULT);
+
+        Coord tile = first.getLegalMoves().get(0).getTile();
+        assertThrows(IllegalStateException.class, () -> first.pathTo(tile));
+    }
+
+    @Test
+    public void shouldSplitOffMovesNearBlacklist() {
+        OccupancyGrid world = knownRoom();
+        Coord blacklisted = new Coord(11, 0);
+        SimulationConfig config = SimulationConfig.DEFAULT.toBuilder().sightRadius(5).dfsReturnSoftCap(1000).build();
+        BoundarySearchResult result = BoundarySearch.calculateBoundaryTiles(new Coord(3, 3), world, new FrontierSet(world), Set.of(blacklisted), config);
+
+        assertFalse(result.getLegalMoves().isEmpty());
+        assertFalse(result.getBlacklistedMoves().isEmpty());
+        for (Move move : result.getLegalMoves()) {
+            assertTrue(move.getTile().distance(blacklisted) > config.getSightRadius());
+        }
+        for (Move move : result.getBlacklistedMoves()) {
+            assertTrue(move.getTile().distance(blacklisted) <= config.getSightRadius());
+        }
+    }
+
+    /**
+     * A 12x12 known area with a wall across its middle, inside a larger unknown grid
+     */
+    private OccupancyGrid knownRoom() {
+        OccupancyGrid world = new OccupancyGrid(30, 30);
+        for (int x = 0; x < 12; x++) {
+            for (int y = 0; y < 12; y++) {
+                world.set(x, y, !(y == 6 && x < 10));
+            }
+        }
+        return world;
+    }
+}
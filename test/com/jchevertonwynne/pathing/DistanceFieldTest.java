@@ -0,0 +1,83 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DistanceFieldTest {
+    @Test
+    public void shouldShortenDistancesWhenShortcutFound() {
+        // U shaped corridor, later closed off by the tile at (1, 0)
+        OccupancyGrid world = new OccupancyGrid(3, 3);
+        world.set(0, 0, true);
+        DistanceField field = new DistanceField(world, new Coord(0, 0));
+        int[][] corridor = {{0, 1}, {0, 2}, {1, 2}, {2, 2}, {2, 1}, {2, 0}};
+        for (int[] tile : corridor) {
+            world.set(tile[0], tile[1], true);
+            field.tileAdded(tile[0], tile[1]);
+        }
+        field.update();
+        assertEquals(6, field.get(2, 0));
+        assertFalse(field.isReachable(new Coord(1, 0)));
+
+        world.set(1, 0, true);
+        field.tileAdded(1, 0);
+        field.update();
+        assertEquals(1, field.get(1, 0));
+        assertEquals(2, field.get(2, 0));
+        assertEquals(3, field.get(2, 1));
+        field.verify();
+    }
+
+    @Test
+    public void shouldMatchFullSearchForRandomDiscoveryOrder() {
+        Random random = new Random(3);
+        OccupancyGrid world = new OccupancyGrid(40, 30);
+        world.set(20, 15, true);
+        DistanceField field = new DistanceField(world, new Coord(20, 15));
+        for (int batch = 0; batch < 40; batch++) {
+            for (int i = 0; i < 30; i++) {
+                int x = random.nextInt(40);
+                int y = random.nextInt(30);
+                boolean pathable = random.nextInt(4) != 0;
+                if (!world.isKnown(x, y)) {
+                    world.set(x, y, pathable);
+                    if (pathable) field.tileAdded(x, y);
+                }
+            }
+            field.update();
+            field.verify();
+        }
+    }
+
+    @Test
+    public void shouldDescendToSourceAsShortlyAsAStar() {
+        Random random = new Random(5);
+        OccupancyGrid world = new OccupancyGrid(40, 30);
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 30; y++) {
+                world.set(x, y, random.nextInt(4) != 0);
+            }
+        }
+        Coord source = new Coord(20, 15);
+        world.set(source, true);
+        DistanceField field = new DistanceField(world, source);
+
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 30; y++) {
+                Coord from = new Coord(x, y);
+                if (!field.isReachable(from) || from.equals(source)) continue;
+                List<Coord> path = field.pathToSource(from);
+                assertEquals(field.get(from), path.size());
+                assertEquals(AStarPathing.calculatePath(from, source, world).size(), path.size());
+                AStarPathingTest.assertConnected(world, from, source, path);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.profiling.TickProfiler;
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalPathingTest {
+    @Test
+    public void shouldReturnConnectedPathsCloseToShortest() {
+        OccupancyGrid world = combWorld();
+        HierarchicalPathing pathing = new HierarchicalPathing(world);
+
+        Coord[] ends = {new Coord(1, 1), new Coord(98, 78), new Coord(50, 40), new Coord(3, 77), new Coord(97, 2)};
+        for (Coord start : ends) {
+            for (Coord destination : ends) {
+                if (start.equals(destination)) continue;
+                List<Coord> path = pathing.calculatePath(start, destination);
+                AStarPathingTest.assertConnected(world, start, destination, path);
+                int shortest = AStarPathing.calculatePath(start, destination, world).size();
+                assertTrue(path.size() <= shortest * 1.1, String.format("%s to %s took %d, shortest %d", start, destination, path.size(), shortest));
+            }
+        }
+    }
+
+    @Test
+    public void shouldUseShortcutsLearnedLater() {
+        OccupancyGrid world = combWorld();
+        HierarchicalPathing pathing = new HierarchicalPathing(world);
+        Coord start = new Coord(5, 40);
+        Coord destination = new Coord(95, 40);
+        int before = pathing.calculatePath(start, destination).size();
+
+        for (int x = 0; x < 100; x++) {
+            if (!world.isPathable(x, 40)) {
+                world.set(x, 40, true);
+                pathing.tileAdded(x, 40);
+            }
+        }
+        List<Coord> after = pathing.calculatePath(start, destination);
+        AStarPathingTest.assertConnected(world, start, destination, after);
+        assertTrue(after.size() <= 90 * 1.1);
+        assertTrue(after.size() < before);
+    }
+
+    @Test
+    public void shouldCountExpansionsOfShortHops() {
+        OccupancyGrid world = combWorld();
+        HierarchicalPathing pathing = new HierarchicalPathing(world);
+        TickProfiler profiler = new TickProfiler();
+        pathing.profileWith(profiler);
+
+        pathing.calculatePath(new Coord(95, 40), new Coord(5, 40));
+        assertEquals(0, profiler.snapshot().get(TickProfiler.Counter.PLANNER_EXPANSIONS));
+        pathing.calculatePath(new Coord(1, 1), new Coord(5, 5));
+        assertTrue(profiler.snapshot().get(TickProfiler.Counter.PLANNER_EXPANSIONS) > 0);
+    }
+
+    /**
+     * A 100x80 world crossed by walls every ten columns, each with a single gap alternating
+     * between the top and bottom
+     */
+    private static OccupancyGrid combWorld() {
+        OccupancyGrid world = new OccupancyGrid(100, 80);
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 80; y++) {
+                boolean wall = x % 10 == 9 && (x / 10 % 2 == 0 ? y > 2 : y < 77);
+                world.set(x, y, !wall);
+            }
+        }
+        return world;
+    }
+}
@@ -0,0 +1,88 @@
+package com.jchevertonwynne.pathing;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JumpPointPathingTest {
+    @Test
+    public void shouldReturnShortestRoute() {
+        OccupancyGrid world = AStarPathingTest.testWorld();
+        JumpPointPathing pathing = new JumpPointPathing();
+
+        List<Coord> resultPath1 = pathing.findPath(new Coord(2, 1), new Coord(8, 7), world);
+        AStarPathingTest.assertConnected(world, new Coord(2, 1), new Coord(8, 7), resultPath1);
+        assertThat(resultPath1, hasSize(12));
+
+        List<Coord> resultPath2 = pathing.findPath(new Coord(3, 6), new Coord(7, 3), world);
+        AStarPathingTest.assertConnected(world, new Coord(3, 6), new Coord(7, 3), resultPath2);
+        assertThat(resultPath2, hasSize(13));
+    }
+
+    @Test
+    public void shouldMatchAStarLengthsOnScatteredWalls() {
+        Random random = new Random(0);
+        AStarPathing aStar = new AStarPathing();
+        JumpPointPathing jumpPoint = new JumpPointPathing();
+        for (int trial = 0; trial < 200; trial++) {
+            OccupancyGrid world = new OccupancyGrid(30, 20);
+            for (int x = 0; x < 30; x++) {
+                for (int y = 0; y < 20; y++) {
+                    world.set(x, y, random.nextDouble() > 0.3);
+                }
+            }
+            Coord start = new Coord(random.nextInt(30), random.nextInt(20));
+            Coord destination = new Coord(random.nextInt(30), random.nextInt(20));
+            world.set(start, true);
+            world.set(destination, true);
+
+            List<Coord> expected;
+            try {
+                expected = aStar.findPath(start, destination, world);
+            }
+            catch (IllegalArgumentException e) {
+                assertThrows(IllegalArgumentException.class, () -> jumpPoint.findPath(start, destination, world));
+                continue;
+            }
+            List<Coord> path = jumpPoint.findPath(start, destination, world);
+            AStarPathingTest.assertConnected(world, start, destination, path);
+            assertEquals(expected.size(), path.size());
+        }
+    }
+
+    @Test
+    public void shouldExpandFewerNodesThanAStarOnOpenGround() {
+        OccupancyGrid open = new OccupancyGrid(60, 60);
+        for (int x = 0; x < 60; x++) {
+            for (int y = 0; y < 60; y++) {
+                open.set(x, y, !(x == 30 && y > 5));
+            }
+        }
+        Coord start = new Coord(2, 50);
+        Coord destination = new Coord(55, 55);
+        AStarPathing aStar = new AStarPathing();
+        JumpPointPathing jumpPoint = new JumpPointPathing();
+
+        List<Coord> path = jumpPoint.findPath(start, destination, open);
+        AStarPathingTest.assertConnected(open, start, destination, path);
+        assertEquals(aStar.findPath(start, destination, open).size(), path.size());
+        assertTrue(jumpPoint.getExpansions() * 10 < aStar.getExpansions(),
+                String.format("jump point expanded %d, A* %d", jumpPoint.getExpansions(), aStar.getExpansions()));
+    }
+
+    @Test
+    public void shouldRejectUnreachableDestination() {
+        OccupancyGrid world = AStarPathingTest.testWorld();
+        world.set(new Coord(8, 7), false);
+        assertThrows(IllegalArgumentException.class, () -> new JumpPointPathing().findPath(new Coord(2, 1), new Coord(8, 7), world));
+    }
+}
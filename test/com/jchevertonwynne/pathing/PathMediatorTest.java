@@ -0,0 +1,30 @@
+package com.jchevertonwynne.pathing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PathMediatorTest {
+    @Test
+    public void shouldKeyPairsTheSameEitherWayRound() {
+        assertEquals(PathMediator.pairKey(3, 17), PathMediator.pairKey(17, 3));
+    }
+
+    @Test
+    public void shouldKeyEveryPairDifferently() {
+        // 1 ^ 2 == 0 ^ 3, which collided when pairs were keyed by combined hash codes
+        assertNotEquals(PathMediator.pairKey(1, 2), PathMediator.pairKey(0, 3));
+
+        Set<Long> keys = new HashSet<>();
+        for (int a = 0; a < 200; a++) {
+            for (int b = a + 1; b < 200; b++) {
+                keys.add(PathMediator.pairKey(a, b));
+            }
+        }
+        assertEquals(200 * 199 / 2, keys.size());
+    }
+}
@@ -0,0 +1,50 @@
+package com.jchevertonwynne.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+    @Test
+    public void shouldPlaceEveryValueInABucketCloseToIt() {
+        Random random = new Random(0);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Histogram.bucket(value);
+            assertTrue(Histogram.lowestValue(bucket) <= value && value <= Histogram.highestValue(bucket));
+            assertTrue(Histogram.highestValue(bucket) - Histogram.lowestValue(bucket) <= value / 32);
+        }
+        assertEquals(Histogram.highestValue(Histogram.bucket(Long.MAX_VALUE)), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldReportPercentilesOfRecordedValues() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), 1e-9);
+        assertEquals(500, snapshot.getValueAtPercentile(50), 500 / 32.0);
+        assertEquals(990, snapshot.getValueAtPercentile(99), 990 / 32.0);
+        assertEquals(1000, snapshot.getMax(), 1000 / 32.0);
+    }
+
+    @Test
+    public void shouldOnlyCountValuesSinceAnEarlierSnapshot() {
+        Histogram histogram = new Histogram();
+        histogram.record(5_000_000);
+        Histogram.Snapshot earlier = histogram.snapshot();
+        histogram.record(10);
+        histogram.record(20);
+
+        Histogram.Snapshot since = histogram.snapshot().since(earlier);
+        assertEquals(2, since.getCount());
+        assertEquals(30, since.getSum());
+        assertEquals(20, since.getMax());
+    }
+}
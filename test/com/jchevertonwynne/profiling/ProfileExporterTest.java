@@ -0,0 +1,51 @@
+package com.jchevertonwynne.profiling;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfileExporterTest {
+    @Test
+    public void shouldWriteSnapshotsForEachIntervalAndSummaryForTheRun(@TempDir Path directory) throws IOException {
+        TickProfiler profiler = new TickProfiler();
+        Path csv = directory.resolve("profile.csv");
+        Path json = directory.resolve("profile.json");
+        ProfileExporter exporter = new ProfileExporter(profiler, csv, json, 2);
+
+        for (int tick = 0; tick < 5; tick++) {
+            profiler.stop(TickProfiler.Phase.TICK, profiler.start());
+            profiler.count(TickProfiler.Counter.TILES_SHARED, 3);
+            exporter.tickFinished();
+        }
+        exporter.close();
+
+        List<String> rows = Files.readAllLines(csv);
+        assertEquals(ProfileExporter.CSV_HEADER, rows.get(0));
+        int rowsPerSnapshot = TickProfiler.Phase.values().length + TickProfiler.Size.values().length + TickProfiler.Counter.values().length;
+        assertEquals(1 + 3 * rowsPerSnapshot, rows.size());
+        assertTrue(rows.contains("2,counter,TILES_SHARED,6,,,,,"));
+        assertTrue(rows.contains("5,counter,TILES_SHARED,3,,,,,"));
+        assertTrue(rows.stream().anyMatch(row -> row.startsWith("4,phase,TICK,2,")));
+
+        String summary = Files.readString(json);
+        assertTrue(summary.startsWith("{\"ticks\":5,"));
+        assertTrue(summary.contains("\"TICK\":{\"count\":5,"));
+        assertTrue(summary.contains("\"TILES_SHARED\":15"));
+    }
+
+    @Test
+    public void shouldIgnoreEverythingWhenDisabled() {
+        TickProfiler profiler = TickProfiler.disabled();
+        assertEquals(0, profiler.start());
+        profiler.stop(TickProfiler.Phase.TICK, 0);
+        profiler.count(TickProfiler.Counter.BLACKLISTED, 1);
+        profiler.size(TickProfiler.Size.FRONTIER, 10);
+    }
+}
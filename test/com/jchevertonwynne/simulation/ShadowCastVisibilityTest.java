@@ -0,0 +1,61 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.Terrain;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShadowCastVisibilityTest {
+    private final VisibilityStrategy visibility = new ShadowCastVisibility();
+
+    @Test
+    public void shouldVisitEachTileInOpenDiscOnce() {
+        Terrain world = openWorld(41, 41);
+        Map<Coord, Integer> visits = scan(world, 20, 20, 10);
+
+        int expected = 0;
+        for (int dx = -10; dx <= 10; dx++) {
+            for (int dy = -10; dy <= 10; dy++) {
+                if (dx * dx + dy * dy <= 10.5 * 10.5) expected++;
+            }
+        }
+        assertEquals(expected, visits.size());
+        assertTrue(visits.values().stream().allMatch(count -> count == 1));
+    }
+
+    @Test
+    public void shouldSeeWallsButNotBehindThem() {
+        Terrain world = openWorld(30, 30);
+        for (int y = 10; y < 20; y++) {
+            world.setPathable(18, y, false);
+        }
+        Map<Coord, Integer> visits = scan(world, 15, 15, 10);
+
+        assertTrue(visits.containsKey(new Coord(18, 15)));
+        assertFalse(visits.containsKey(new Coord(19, 15)));
+        assertFalse(visits.containsKey(new Coord(22, 14)));
+        assertTrue(visits.containsKey(new Coord(10, 15)));
+    }
+
+    private Map<Coord, Integer> scan(Terrain world, int x, int y, int radius) {
+        Map<Coord, Integer> visits = new HashMap<>();
+        visibility.scan(world, x, y, radius, (tx, ty, pathable) -> visits.merge(new Coord(tx, ty), 1, Integer::sum));
+        return visits;
+    }
+
+    private Terrain openWorld(int width, int height) {
+        Terrain world = new Terrain(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                world.setPathable(x, y, true);
+            }
+        }
+        return world;
+    }
+}
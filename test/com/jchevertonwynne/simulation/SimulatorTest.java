@@ -0,0 +1,153 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.Terrain;
+import com.jchevertonwynne.utils.SimulationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulatorTest {
+    private static final SimulationConfig CONFIG = SimulationConfig.DEFAULT.toBuilder()
+            .display(false)
+            .startPosition(new Coord(5, 5))
+            .agentCount(6)
+            .sightRadius(8)
+            .broadcastRadius(16)
+            .employDrops(true)
+            .seed(11L)
+            .build();
+
+    @Test
+    public void shouldGiveSameResultWithAnyThreadCount() {
+        List<Integer> serial = run(CONFIG.toBuilder().simulationThreads(1).build());
+        List<Integer> parallel = run(CONFIG.toBuilder().simulationThreads(4).build());
+        assertEquals(serial, parallel);
+    }
+
+    @Test
+    public void shouldGiveSameResultWithAnyThreadCountFromSharedKnowledge() {
+        SimulationConfig shared = CONFIG.toBuilder().globalKnowledge(true).verifyDistances(true).build();
+        List<Integer> serial = run(shared.toBuilder().simulationThreads(1).build());
+        List<Integer> parallel = run(shared.toBuilder().simulationThreads(4).build());
+        assertEquals(serial, parallel);
+        assertTrue(serial.get(0) < 5000);
+    }
+
+    @Test
+    public void shouldFinishReturningAlongHierarchicalPaths() {
+        for (boolean globalKnowledge : new boolean[]{false, true}) {
+            SimulationConfig hierarchical = CONFIG.toBuilder()
+                    .returnPathing(ReturnPathing.HIERARCHICAL)
+                    .globalKnowledge(globalKnowledge)
+                    .build();
+            List<Integer> serial = run(hierarchical.toBuilder().simulationThreads(1).build());
+            List<Integer> parallel = run(hierarchical.toBuilder().simulationThreads(4).build());
+            assertEquals(serial, parallel);
+            assertTrue(serial.get(0) < 5000);
+        }
+    }
+
+    @Test
+    public void shouldKeepProgressingAfterComplete() {
+        Simulator simulator = new Simulator(rooms(), CONFIG.toBuilder().simulationThreads(2).build());
+        try {
+            int ticks = 0;
+            while (!simulator.complete() && ticks < 5000) {
+                simulator.progress();
+                ticks++;
+            }
+            assertTrue(simulator.complete());
+            int distanceMoved = simulator.totalDistanceMoved();
+            assertTrue(simulator.progress());
+            assertTrue(simulator.progress());
+            assertEquals(distanceMoved, simulator.totalDistanceMoved());
+        }
+        finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void shouldRenderSameIntoAnyImageType() {
+        Simulator simulator = new Simulator(rooms(), CONFIG.toBuilder().simulationThreads(2).build());
+        try {
+            for (int tick = 0; tick < 200; tick++) {
+                simulator.progress();
+            }
+        }
+        finally {
+            simulator.close();
+        }
+
+        BufferedImage direct = new BufferedImage(60, 60, BufferedImage.TYPE_INT_RGB);
+        simulator.display(direct);
+        int coloured = 0;
+        for (int x = 0; x < 60; x++) {
+            for (int y = 0; y < 60; y++) {
+                if ((direct.getRGB(x, y) & 0xFFFFFF) != 0) coloured++;
+            }
+        }
+        assertTrue(coloured > 0);
+
+        for (int type : new int[]{BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_BGR}) {
+            BufferedImage other = new BufferedImage(60, 60, type);
+            simulator.display(other);
+            for (int x = 0; x < 60; x++) {
+                for (int y = 0; y < 60; y++) {
+                    assertEquals(direct.getRGB(x, y), other.getRGB(x, y), "image type " + type);
+                }
+            }
+        }
+
+        BufferedImage shorter = new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB);
+        simulator.display(shorter);
+        for (int x = 0; x < 60; x++) {
+            for (int y = 0; y < 40; y++) {
+                assertEquals(direct.getRGB(x, y), shorter.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * @return Ticks, distance moved and scans
+     */
+    private static List<Integer> run(SimulationConfig config) {
+        Simulator simulator = new Simulator(rooms(), config);
+        int ticks = 0;
+        try {
+            while (!simulator.complete() && ticks < 5000) {
+                simulator.progress();
+                ticks++;
+            }
+        }
+        finally {
+            simulator.close();
+        }
+        List<Integer> result = new ArrayList<>();
+        result.add(ticks);
+        result.add(simulator.totalDistanceMoved());
+        result.add(simulator.totalScans());
+        return result;
+    }
+
+    /**
+     * 60 by 60 world split into four rooms joined by doorways
+     */
+    private static Terrain rooms() {
+        Terrain world = new Terrain(60, 60);
+        for (int x = 0; x < 60; x++) {
+            for (int y = 0; y < 60; y++) {
+                boolean border = x == 0 || y == 0 || x == 59 || y == 59;
+                boolean divider = (x == 30 && y % 20 != 10) || (y == 30 && x % 20 != 10);
+                world.setPathable(x, y, !border && !divider);
+            }
+        }
+        return world;
+    }
+}
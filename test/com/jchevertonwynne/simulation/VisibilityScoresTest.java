@@ -0,0 +1,39 @@
+package com.jchevertonwynne.simulation;
+
+import com.jchevertonwynne.structures.OccupancyGrid;
+import com.jchevertonwynne.utils.RayTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisibilityScoresTest {
+    @Test
+    public void shouldMatchFreshCountsAsWallsAreLearned() {
+        int radius = 8;
+        OccupancyGrid world = new OccupancyGrid(70, 50);
+        WallRegions walls = new WallRegions(world.getWidth(), world.getHeight(), radius);
+        VisibilityScores scores = new VisibilityScores(world, walls, radius);
+        RayTable rays = RayTable.forRadius(radius);
+        Random random = new Random(18);
+
+        for (int i = 0; i < 3000; i++) {
+            int x = random.nextInt(world.getWidth());
+            int y = random.nextInt(world.getHeight());
+            if (!world.isKnown(x, y)) {
+                boolean pathable = random.nextInt(5) != 0;
+                world.set(x, y, pathable);
+                if (!pathable) walls.wallLearned(x, y);
+            }
+
+            for (int j = 0; j < 5; j++) {
+                int cx = random.nextInt(10) * 7;
+                int cy = random.nextInt(10) * 5;
+                assertEquals(rays.countVisible(world, cx, cy), scores.potentialVisible(cx, cy));
+            }
+        }
+        assertTrue(scores.getHits() > scores.getMisses());
+    }
+}
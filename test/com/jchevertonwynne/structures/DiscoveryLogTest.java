@@ -0,0 +1,25 @@
+package com.jchevertonwynne.structures;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscoveryLogTest {
+    @Test
+    public void shouldPackRecordsInOrder() {
+        DiscoveryLog log = new DiscoveryLog();
+        for (int i = 0; i < 1000; i++) {
+            log.append(i * 1000, i % 3 == 0);
+        }
+
+        assertEquals(1000, log.getSequence());
+        assertEquals(500_000, DiscoveryLog.tileIndex(log.record(500)));
+        assertFalse(DiscoveryLog.isPathable(log.record(500)));
+        assertEquals(999_000, DiscoveryLog.tileIndex(log.record(999)));
+        assertTrue(DiscoveryLog.isPathable(log.record(999)));
+        assertThrows(IndexOutOfBoundsException.class, () -> log.record(1000));
+    }
+}
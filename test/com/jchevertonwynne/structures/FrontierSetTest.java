@@ -0,0 +1,44 @@
+package com.jchevertonwynne.structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrontierSetTest {
+    @Test
+    public void shouldMatchFullRecalculationAsTilesAreLearned() {
+        OccupancyGrid world = new OccupancyGrid(40, 30);
+        world.set(20, 15, true);
+        FrontierSet frontier = new FrontierSet(world);
+        Random random = new Random(16);
+
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(world.getWidth());
+            int y = random.nextInt(world.getHeight());
+            if (!world.isKnown(x, y)) {
+                world.set(x, y, random.nextInt(4) != 0);
+                frontier.tileLearned(x, y);
+            }
+            if (i % 100 == 0) {
+                assertMatches(world, frontier);
+            }
+        }
+        assertMatches(world, frontier);
+        assertMatches(world, new FrontierSet(world));
+    }
+
+    private static void assertMatches(OccupancyGrid world, FrontierSet frontier) {
+        int expectedSize = 0;
+        for (int x = 0; x < world.getWidth(); x++) {
+            for (int y = 0; y < world.getHeight(); y++) {
+                boolean expected = world.isPathable(x, y)
+                        && (!world.isKnown(x + 1, y) || !world.isKnown(x - 1, y) || !world.isKnown(x, y + 1) || !world.isKnown(x, y - 1));
+                assertEquals(expected, frontier.contains(x, y), String.format("Tile %d,%d", x, y));
+                if (expected) expectedSize++;
+            }
+        }
+        assertEquals(expectedSize, frontier.size());
+    }
+}
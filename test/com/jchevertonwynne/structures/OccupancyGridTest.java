@@ -0,0 +1,68 @@
+package com.jchevertonwynne.structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupancyGridTest {
+    @Test
+    public void shouldTrackThreeStates() {
+        OccupancyGrid grid = new OccupancyGrid(70, 3);
+        Coord path = new Coord(65, 1);
+        Coord wall = new Coord(2, 2);
+
+        assertTrue(grid.set(path, true));
+        assertTrue(grid.set(wall, false));
+        assertFalse(grid.set(wall, false));
+
+        assertTrue(grid.isKnown(path));
+        assertTrue(grid.isPathable(path));
+        assertTrue(grid.isKnown(wall));
+        assertFalse(grid.isPathable(wall));
+        assertFalse(grid.isKnown(new Coord(0, 0)));
+        assertTrue(grid.pathableOrDefault(new Coord(0, 0), true));
+        assertFalse(grid.isKnown(new Coord(-1, 0)));
+        assertFalse(grid.isKnown(new Coord(70, 0)));
+        assertEquals(2, grid.getKnownCount());
+    }
+
+    @Test
+    public void shouldCombineKnowledge() {
+        OccupancyGrid a = new OccupancyGrid(10, 10);
+        OccupancyGrid b = new OccupancyGrid(10, 10);
+        a.set(new Coord(1, 1), true);
+        b.set(new Coord(1, 1), true);
+        b.set(new Coord(9, 9), false);
+        b.set(new Coord(4, 7), true);
+
+        a.union(b);
+
+        List<Coord> known = new ArrayList<>();
+        a.forEachKnown((x, y, pathable) -> known.add(new Coord(x, y)));
+        assertEquals(List.of(new Coord(1, 1), new Coord(4, 7), new Coord(9, 9)), known);
+        assertEquals(3, a.getKnownCount());
+        assertTrue(a.isPathable(new Coord(4, 7)));
+        assertFalse(a.isPathable(new Coord(9, 9)));
+    }
+
+    @Test
+    public void shouldReportTilesAddedByUnion() {
+        OccupancyGrid a = new OccupancyGrid(100, 2);
+        OccupancyGrid b = new OccupancyGrid(100, 2);
+        a.set(new Coord(3, 0), true);
+        b.set(new Coord(3, 0), true);
+        b.set(new Coord(70, 0), false);
+        b.set(new Coord(99, 1), true);
+
+        List<Coord> added = new ArrayList<>();
+        a.union(b, (x, y, pathable) -> added.add(new Coord(x, y)));
+
+        assertEquals(List.of(new Coord(70, 0), new Coord(99, 1)), added);
+        assertEquals(3, a.getKnownCount());
+    }
+}
@@ -0,0 +1,77 @@
+package com.jchevertonwynne.structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedOccupancyGridTest {
+    @Test
+    public void shouldLearnEachTileOnceAcrossThreads() throws Exception {
+        int width = 97;
+        int height = 61;
+        SharedOccupancyGrid grid = new SharedOccupancyGrid(width, height);
+        AtomicInteger firstToLearn = new AtomicInteger();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 4; writer++) {
+                int offset = writer;
+                writers.add(threads.submit(() -> {
+                    for (int i = 0; i < width * height; i++) {
+                        int index = (i + offset * 1013) % (width * height);
+                        int x = index % width;
+                        int y = index / width;
+                        if (grid.set(x, y, (x * 7 + y) % 3 != 0)) {
+                            firstToLearn.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        }
+        finally {
+            threads.shutdown();
+        }
+
+        assertEquals(width * height, firstToLearn.get());
+        assertEquals(width * height, grid.getKnownCount());
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                assertTrue(grid.isKnown(x, y));
+                assertEquals((x * 7 + y) % 3 != 0, grid.isPathable(x, y));
+                assertEquals((x * 7 + y) % 3 == 0, grid.isWall(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void shouldKeepFirstStatusAndVisitKnownTiles() {
+        SharedOccupancyGrid grid = new SharedOccupancyGrid(40, 3);
+        assertTrue(grid.set(33, 2, true));
+        assertFalse(grid.set(33, 2, false));
+        assertTrue(grid.isPathable(33, 2));
+        assertTrue(grid.set(0, 0, false));
+        assertFalse(grid.isKnown(-1, 0));
+
+        List<String> visited = new ArrayList<>();
+        grid.forEachKnown((x, y, pathable) -> visited.add(x + "," + y + "," + pathable));
+        assertEquals(List.of("0,0,false", "33,2,true"), visited);
+
+        assertEquals(2, grid.getKnownCount());
+        assertTrue(grid.isWall(0, 0));
+        assertFalse(grid.isWall(33, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> grid.set(new Coord(40, 0), true));
+    }
+}
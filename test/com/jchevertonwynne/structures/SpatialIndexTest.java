@@ -0,0 +1,36 @@
+package com.jchevertonwynne.structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpatialIndexTest {
+    @Test
+    public void shouldFindNearbyItemsInInsertionOrder() {
+        SpatialIndex<String> index = new SpatialIndex<>(100, 100, 10);
+        index.add(new Coord(55, 55), "first");
+        index.add(new Coord(95, 95), "far");
+        index.add(new Coord(41, 49), "second");
+        index.add(new Coord(60, 42), "third");
+
+        List<String> near = index.candidatesNear(new Coord(50, 50), 10);
+        assertThat(near, contains("first", "second", "third"));
+        assertThat(near, not(hasItem("far")));
+    }
+
+    @Test
+    public void shouldClampQueriesAtEdges() {
+        SpatialIndex<String> index = new SpatialIndex<>(25, 25, 10);
+        index.add(new Coord(0, 24), "corner");
+
+        assertThat(index.candidatesNear(new Coord(2, 22), 40), contains("corner"));
+        index.clear();
+        assertEquals(0, index.candidatesNear(new Coord(2, 22), 40).size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.jchevertonwynne.trace;
+
+import com.jchevertonwynne.simulation.VisibilityType;
+import com.jchevertonwynne.structures.Coord;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TraceTest {
+    private static class EventLog implements TraceListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void tick(int tick) {
+            events.add("tick " + tick);
+        }
+
+        @Override
+        public void moved(int agent, int x, int y) {
+            events.add(String.format("move %d %d %d", agent, x, y));
+        }
+
+        @Override
+        public void goalChosen(int agent, int x, int y) {
+            events.add(String.format("goal %d %d %d", agent, x, y));
+        }
+
+        @Override
+        public void stateChanged(int agent, int state) {
+            events.add(String.format("state %d %d", agent, state));
+        }
+
+        @Override
+        public void scanned(int agent, int x, int y) {
+            events.add(String.format("scan %d %d %d", agent, x, y));
+        }
+
+        @Override
+        public void blacklisted(int agent, int x, int y) {
+            events.add(String.format("blacklist %d %d %d", agent, x, y));
+        }
+    }
+
+    @Test
+    public void shouldReadBackWhatWasWritten() throws IOException {
+        Path file = Files.createTempFile("trace", ".bin");
+        TraceHeader header = new TraceHeader("areas/mazeSmall.png", 250, 500, 600, new Coord(238, 288), 30,
+                VisibilityType.SHADOW_CAST, -5L, List.of(Color.RED, Color.BLUE));
+
+        EventLog written = new EventLog();
+        try (TraceWriter writer = new TraceWriter(file, header)) {
+            // enough ticks to fill several buffers
+            for (int tick = 0; tick < 20_000; tick++) {
+                writer.tick(tick);
+                written.tick(tick);
+                writer.moved(tick % 2, tick % 500, 599);
+                written.moved(tick % 2, tick % 500, 599);
+                if (tick % 7 == 0) {
+                    writer.goalChosen(1, 3, 4);
+                    written.goalChosen(1, 3, 4);
+                    writer.stateChanged(0, 2);
+                    written.stateChanged(0, 2);
+                    writer.scanned(0, 499, 0);
+                    written.scanned(0, 499, 0);
+                    writer.blacklisted(1, 0, 1);
+                    written.blacklisted(1, 0, 1);
+                }
+            }
+        }
+
+        EventLog read = new EventLog();
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(header, reader.getHeader());
+            while (reader.readTick(read)) {
+            }
+            assertFalse(reader.readTick(read));
+        }
+        finally {
+            Files.delete(file);
+        }
+        assertEquals(written.events, read.events);
+    }
+
+    @Test
+    public void shouldReportFailedWritesInsteadOfWaiting() throws IOException {
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full));
+        TraceHeader header = new TraceHeader("areas/mazeSmall.png", 250, 500, 600, new Coord(238, 288), 30,
+                VisibilityType.SHADOW_CAST, -5L, List.of(Color.RED));
+
+        TraceWriter writer = new TraceWriter(full, header);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(UncheckedIOException.class, () -> {
+            for (int tick = 0; tick < 1_000_000; tick++) {
+                writer.tick(tick);
+                writer.moved(0, 1, 2);
+            }
+        }));
+        assertThrows(UncheckedIOException.class, writer::close);
+    }
+}
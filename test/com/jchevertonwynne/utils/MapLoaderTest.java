@@ -0,0 +1,77 @@
+package com.jchevertonwynne.utils;
+
+import com.jchevertonwynne.structures.Terrain;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapLoaderTest {
+    private static final int[] PIXELS = {0xFFFFFFFF, 0x00FFFFFF, 0xFFF0F0F0, 0xFF000000, 0xFFFFFFEF, 0xFFE0FFFF};
+
+    @Test
+    public void shouldReadRasterLikeGetRgb() {
+        for (int type : new int[]{BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_ARGB}) {
+            BufferedImage image = image(type);
+            for (int threshold : new int[]{255, 240, 0}) {
+                Terrain terrain = new MapLoader(threshold, false).fromImage(image);
+                for (int x = 0; x < image.getWidth(); x++) {
+                    int argb = image.getRGB(x, 0);
+                    boolean expected = (argb >>> 24) >= threshold
+                            && (argb >> 16 & 0xFF) >= threshold
+                            && (argb >> 8 & 0xFF) >= threshold
+                            && (argb & 0xFF) >= threshold;
+                    assertEquals(expected, terrain.isPathable(x, 0), String.format("type %d threshold %d pixel %x", type, threshold, argb));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldCacheTerrainNextToImage() throws IOException {
+        Path directory = Files.createTempDirectory("maps");
+        try {
+            File png = directory.resolve("map.png").toFile();
+            ImageIO.write(image(BufferedImage.TYPE_4BYTE_ABGR), "png", png);
+            MapLoader loader = new MapLoader(255, true);
+
+            Terrain loaded = loader.load(png);
+            File cache = directory.resolve("map.png.terrain").toFile();
+            assertTrue(cache.isFile());
+
+            Terrain cached = loader.load(png);
+            assertEquals(PIXELS.length, cached.getWidth());
+            for (int x = 0; x < PIXELS.length; x++) {
+                assertEquals(loaded.isPathable(x, 0), cached.isPathable(x, 0));
+            }
+            assertTrue(cached.isPathable(0, 0));
+            assertFalse(cached.isPathable(1, 0));
+
+            Terrain lowerThreshold = new MapLoader(240, true).load(png);
+            assertTrue(lowerThreshold.isPathable(2, 0));
+        }
+        finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static BufferedImage image(int type) {
+        BufferedImage image = new BufferedImage(PIXELS.length, 1, type);
+        for (int x = 0; x < PIXELS.length; x++) {
+            image.setRGB(x, 0, PIXELS[x]);
+        }
+        return image;
+    }
+}
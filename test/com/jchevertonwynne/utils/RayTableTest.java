@@ -0,0 +1,49 @@
+package com.jchevertonwynne.utils;
+
+import com.jchevertonwynne.structures.Coord;
+import com.jchevertonwynne.structures.OccupancyGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RayTableTest {
+    @Test
+    public void shouldMatchCircleRays() {
+        Coord centre = new Coord(7, -3);
+        RayTable table = RayTable.forRadius(12);
+
+        List<List<Coord>> flattened = new ArrayList<>();
+        for (int ray = 0; ray < table.getRayCount(); ray++) {
+            List<Coord> steps = new ArrayList<>();
+            for (int step = table.rayStart(ray); step < table.rayEnd(ray); step++) {
+                steps.add(new Coord(centre.getX() + table.dx(step), centre.getY() + table.dy(step)));
+            }
+            flattened.add(steps);
+        }
+
+        assertEquals(new HashSet<>(CircleOperations.generateCircleRays(centre, 12)), new HashSet<>(flattened));
+    }
+
+    @Test
+    public void shouldCountDistinctVisibleTiles() {
+        RayTable table = RayTable.forRadius(5);
+        OccupancyGrid world = new OccupancyGrid(20, 20);
+        assertEquals(table.getDistinctOffsets(), table.countVisible(world, 10, 10));
+
+        Set<Coord> eastOfWall = new HashSet<>();
+        for (int y = 0; y < 20; y++) {
+            world.set(12, y, false);
+        }
+        for (int ray = 0; ray < table.getRayCount(); ray++) {
+            for (int step = table.rayStart(ray); step < table.rayEnd(ray); step++) {
+                if (table.dx(step) >= 2) eastOfWall.add(new Coord(table.dx(step), table.dy(step)));
+            }
+        }
+        assertEquals(table.getDistinctOffsets() - eastOfWall.size(), table.countVisible(world, 10, 10));
+    }
+}
@@ -0,0 +1,34 @@
+package com.jchevertonwynne.utils;
+
+import com.jchevertonwynne.structures.Coord;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SimulationConfigTest {
+    @Test
+    public void shouldApplyCommandLineFlags() throws IOException {
+        SimulationConfig config = SimulationConfig.fromArgs(new String[]{
+                "--agentCount=3",
+                "--startPosition=12, 34",
+                "--display=false",
+                "--seed=99"
+        });
+
+        assertEquals(3, config.getAgentCount());
+        assertEquals(new Coord(12, 34), config.getStartPosition());
+        assertFalse(config.isDisplay());
+        assertEquals(99L, config.getSeed());
+        assertEquals(SimulationConfig.DEFAULT.getSightRadius(), config.getSightRadius());
+    }
+
+    @Test
+    public void shouldRejectUnknownSettings() {
+        assertThrows(IllegalArgumentException.class, () -> SimulationConfig.fromArgs(new String[]{"--sightRaduis=10"}));
+        assertThrows(IllegalArgumentException.class, () -> SimulationConfig.fromArgs(new String[]{"agentCount=10"}));
+    }
+}